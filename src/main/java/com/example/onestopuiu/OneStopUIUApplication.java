@@ -1,5 +1,8 @@
 package com.example.onestopuiu;
 
+import com.example.onestopuiu.util.DatabaseConnection;
+import com.example.onestopuiu.util.OrderSchedulerService;
+import com.example.onestopuiu.util.SchemaMigrator;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -31,6 +34,11 @@ public class OneStopUIUApplication extends Application {
             }
             
             stage.show();
+
+            // Bring the schema up to date off the FX thread
+            Thread startup = new Thread(SchemaMigrator::migrate, "startup-migrations");
+            startup.setDaemon(true);
+            startup.start();
             System.out.println("[OneStopUIU] Application started successfully!");
         } catch (Exception e) {
             System.err.println("[OneStopUIU] Fatal error during application startup:");
@@ -39,6 +47,12 @@ public class OneStopUIUApplication extends Application {
         }
     }
 
+    @Override
+    public void stop() {
+        OrderSchedulerService.getInstance().stop();
+        DatabaseConnection.shutdown();
+    }
+
     public static void main(String[] args) {
         launch();
     }
@@ -5,8 +5,11 @@ import com.example.onestopuiu.dao.UserDAO;
 import com.example.onestopuiu.model.FoodOrder;
 import com.example.onestopuiu.model.FoodOrderItem;
 import com.example.onestopuiu.model.User;
+import com.example.onestopuiu.util.TableScrollUtils;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
@@ -43,8 +46,14 @@ public class AdminCanteenOrdersController implements Initializable {
     @FXML private TableColumn<FoodOrder, String> completedItemsColumn;
     @FXML private TableColumn<FoodOrder, String> completedTotalColumn;
 
+    private static final int PAGE_SIZE = 50;
+
     private final FoodOrderDAO foodOrderDAO = new FoodOrderDAO();
     private final UserDAO userDAO = new UserDAO();
+    private final Listing pendingListing = new Listing("pending");
+    private final Listing completedListing = new Listing("completed");
+    // Bumped on every reload, so a page still loading for the previous listing is dropped
+    private int listingVersion;
     private User currentUser;
 
     @Override
@@ -54,6 +63,10 @@ public class AdminCanteenOrdersController implements Initializable {
             welcomeLabel.setText("Welcome, Admin!");
         }
         setupColumns();
+        pendingOrdersTable.setItems(pendingListing.orders);
+        completedOrdersTable.setItems(completedListing.orders);
+        TableScrollUtils.onScrolledNearBottom(pendingOrdersTable, () -> loadNextPage(pendingListing));
+        TableScrollUtils.onScrolledNearBottom(completedOrdersTable, () -> loadNextPage(completedListing));
         loadOrders();
     }
 
@@ -136,46 +149,66 @@ public class AdminCanteenOrdersController implements Initializable {
     }
 
     private void loadOrders() {
-        loadingIndicator.setVisible(true);
-        try {
-            System.out.println("Loading food orders...");
-            List<FoodOrder> allOrders = foodOrderDAO.getAll();
-            System.out.println("Total food orders loaded: " + allOrders.size());
-            
-            // Debug: Print all orders and their statuses
-            for (FoodOrder order : allOrders) {
-                System.out.println("Order ID: " + order.getId() + ", Status: '" + order.getStatus() + "', User ID: " + order.getUserId() + ", Total: " + order.getTotal());
-            }
-            
-            List<FoodOrder> pendingOrders = allOrders.stream()
-                .filter(order -> {
-                    String status = order.getStatus();
-                    boolean isPending = status != null && (status.equalsIgnoreCase("pending") || status.equalsIgnoreCase("PENDING"));
-                    System.out.println("Order " + order.getId() + " - Status: '" + status + "' - Is pending: " + isPending);
-                    return isPending;
-                })
-                .collect(Collectors.toList());
-            System.out.println("Pending orders: " + pendingOrders.size());
-            
-            List<FoodOrder> completedOrders = allOrders.stream()
-                .filter(order -> {
-                    String status = order.getStatus();
-                    boolean isCompleted = status != null && (status.equalsIgnoreCase("completed") || status.equalsIgnoreCase("COMPLETED"));
-                    return isCompleted;
-                })
-                .collect(Collectors.toList());
-            System.out.println("Completed orders: " + completedOrders.size());
-
-            pendingOrdersTable.setItems(FXCollections.observableArrayList(pendingOrders));
-            completedOrdersTable.setItems(FXCollections.observableArrayList(completedOrders));
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showError("Error", "Failed to load orders: " + e.getMessage());
-        } finally {
-            loadingIndicator.setVisible(false);
+        listingVersion++;
+        for (Listing listing : List.of(pendingListing, completedListing)) {
+            listing.orders.clear();
+            listing.hasMore = true;
+            listing.loadingPage = false;
+            loadNextPage(listing);
         }
     }
 
+    /**
+     * Loads the next page of the listing in the background and appends it, continuing after
+     * the last loaded order. Scrolling keeps firing near the bottom, so only one page per
+     * listing is requested at a time.
+     */
+    private void loadNextPage(Listing listing) {
+        if (!listing.hasMore || listing.loadingPage) {
+            return;
+        }
+        listing.loadingPage = true;
+        updateLoadingIndicator();
+        int version = listingVersion;
+        FoodOrder after = listing.orders.isEmpty() ? null : listing.orders.get(listing.orders.size() - 1);
+
+        Task<List<FoodOrder>> pageTask = new Task<>() {
+            @Override
+            protected List<FoodOrder> call() throws Exception {
+                return foodOrderDAO.getOrdersPage(listing.status, null, null, after, PAGE_SIZE);
+            }
+        };
+        pageTask.setOnSucceeded(e -> {
+            if (version != listingVersion) {
+                return;
+            }
+            listing.loadingPage = false;
+            updateLoadingIndicator();
+            List<FoodOrder> page = pageTask.getValue();
+            listing.orders.addAll(page);
+            listing.hasMore = page.size() == PAGE_SIZE;
+        });
+        pageTask.setOnFailed(e -> {
+            if (version != listingVersion) {
+                return;
+            }
+            listing.loadingPage = false;
+            listing.hasMore = false;
+            updateLoadingIndicator();
+            Throwable error = pageTask.getException();
+            error.printStackTrace();
+            showError("Error", "Failed to load orders: " + error.getMessage());
+        });
+
+        Thread pageThread = new Thread(pageTask, "admin-canteen-orders-page");
+        pageThread.setDaemon(true);
+        pageThread.start();
+    }
+
+    private void updateLoadingIndicator() {
+        loadingIndicator.setVisible(pendingListing.loadingPage || completedListing.loadingPage);
+    }
+
     private void handleCompleteOrder(FoodOrder order) {
         try {
             order.setStatus("completed");  // Changed to lowercase to match database
@@ -232,4 +265,16 @@ public class AdminCanteenOrdersController implements Initializable {
         alert.setContentText(content);
         alert.showAndWait();
     }
-} 
+
+    // One table's orders with a given status, loaded a page at a time
+    private static final class Listing {
+        final String status;
+        final ObservableList<FoodOrder> orders = FXCollections.observableArrayList();
+        boolean hasMore;
+        boolean loadingPage;
+
+        Listing(String status) {
+            this.status = status;
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.onestopuiu.controller;
 
+import com.example.onestopuiu.dao.CachedFoodItemDAO;
 import com.example.onestopuiu.dao.FoodItemDAO;
 import com.example.onestopuiu.dao.FoodOrderDAO;
 import com.example.onestopuiu.model.FoodItem;
+import com.example.onestopuiu.util.DashboardStatsService;
+import com.example.onestopuiu.util.OrderSchedulerService;
+import com.example.onestopuiu.util.SalesReportWriter;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -15,6 +19,7 @@ import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
 import javafx.animation.KeyFrame;
@@ -22,12 +27,16 @@ import javafx.animation.Timeline;
 import javafx.util.Duration;
 import javafx.application.Platform;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.ResourceBundle;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 public class AdminDashboardController extends AdminBaseController implements Initializable {
     @FXML private Text pendingOrdersCount;
@@ -43,18 +52,26 @@ public class AdminDashboardController extends AdminBaseController implements Ini
     @FXML private TableColumn<FoodItem, Integer> foodStockColumn;
     @FXML private TableColumn<FoodItem, Boolean> foodAvailableColumn;
 
-    private final FoodItemDAO foodItemDAO = new FoodItemDAO();
+    private final FoodItemDAO foodItemDAO = new CachedFoodItemDAO();
     private final FoodOrderDAO foodOrderDAO = new FoodOrderDAO();
 
+    // Stats arrive from DashboardStatsService whenever a counter changes
+    private final Consumer<DashboardStatsService.Stats> statsListener =
+        stats -> Platform.runLater(() -> showStats(stats));
+    private Timeline refreshTimeline;
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         setupTables();
+        // Order background jobs, including auto-cancel, run in the admin app only, not in every customer's client
+        OrderSchedulerService.getInstance().startAutoCancel();
+        DashboardStatsService.getInstance().addListener(statsListener);
         loadData();
         
-        // Set up a timer to refresh data every 30 seconds
-        Timeline timeline = new Timeline(new KeyFrame(Duration.seconds(30), event -> loadData()));
-        timeline.setCycleCount(Timeline.INDEFINITE);
-        timeline.play();
+        // Set up a timer to refresh the items table every 30 seconds
+        refreshTimeline = new Timeline(new KeyFrame(Duration.seconds(30), event -> loadData()));
+        refreshTimeline.setCycleCount(Timeline.INDEFINITE);
+        refreshTimeline.play();
     }
 
     private void setupTables() {
@@ -110,31 +127,30 @@ public class AdminDashboardController extends AdminBaseController implements Ini
         });
     }
 
+    // Loads the items table in the background; the counters come from DashboardStatsService
     private void loadData() {
-        try {
-            // Load items for tables
-            List<FoodItem> foodItems = foodItemDAO.getAll();
-            foodItemsTable.setItems(FXCollections.observableArrayList(foodItems));
-
-            // Update dashboard stats
-            List<FoodItem> lowStockFoodItems = foodItemDAO.getAll().stream()
-                .filter(item -> item.getStockQuantity() <= 5)
-                .collect(Collectors.toList());
-            
-            // Get pending orders count
-            int pendingFoodOrders = foodOrderDAO.getPendingOrdersCount();
+        new Thread(() -> {
+            try {
+                List<FoodItem> foodItems = foodItemDAO.getAll();
+                Platform.runLater(() -> foodItemsTable.setItems(FXCollections.observableArrayList(foodItems)));
+            } catch (Exception e) {
+                Platform.runLater(() -> showError("Data Loading Error", "Failed to load items: " + e.getMessage()));
+            }
+        }).start();
+    }
 
-            // Update UI with stats
-            lowStockCount.setText(String.valueOf(lowStockFoodItems.size()));
-            pendingOrdersCount.setText(String.valueOf(pendingFoodOrders));
+    private void showStats(DashboardStatsService.Stats stats) {
+        pendingOrdersCount.setText(String.valueOf(stats.pendingOrders()));
+        lowStockCount.setText(String.valueOf(stats.lowStockItems()));
+        // Format sales with Bengali Taka symbol (৳)
+        todayFoodSales.setText(String.format("৳%.2f", stats.todaySales()));
+    }
 
-            // Calculate today's sales
-            double todayFoodSalesAmount = foodOrderDAO.getTodaySales();
-            
-            // Format sales with Bengali Taka symbol (৳)
-            todayFoodSales.setText(String.format("৳%.2f", todayFoodSalesAmount));
-        } catch (Exception e) {
-            showError("Data Loading Error", "Failed to load items: " + e.getMessage());
+    // Stops background updates once the dashboard is replaced by another view
+    private void stopUpdates() {
+        DashboardStatsService.getInstance().removeListener(statsListener);
+        if (refreshTimeline != null) {
+            refreshTimeline.stop();
         }
     }
 
@@ -149,6 +165,7 @@ public class AdminDashboardController extends AdminBaseController implements Ini
             stage.setScene(scene);
             stage.setMaximized(true);
             stage.centerOnScreen();
+            stopUpdates();
         } catch (IOException e) {
             e.printStackTrace();
             showError("Error", "Could not load login view: " + e.getMessage());
@@ -174,58 +191,36 @@ public class AdminDashboardController extends AdminBaseController implements Ini
     protected void handleGenerateFoodReport() {
         try {
             StringBuilder report = new StringBuilder();
-            report.append("=== Food Sales Report ===\n\n");
-            
-            // Today's Sales
-            double todaySales = foodOrderDAO.getTodaySales();
-            report.append("Today's Sales: ৳").append(String.format("%.2f", todaySales)).append("\n\n");
-            
-            // All-time Sales
-            double allTimeSales = foodOrderDAO.getAllTimeSales();
-            report.append("All-time Sales: ৳").append(String.format("%.2f", allTimeSales)).append("\n\n");
-            
-            // Get all food items
-            List<FoodItem> foodItems = foodItemDAO.getAll();
-            
-            // Popular Items (based on orders)
-            report.append("Top 5 Popular Items:\n");
-            foodItems.stream()
-                .sorted((a, b) -> {
-                    try {
-                        int ordersA = foodOrderDAO.getItemOrderCount(a.getId());
-                        int ordersB = foodOrderDAO.getItemOrderCount(b.getId());
-                        return ordersB - ordersA;
-                    } catch (SQLException e) {
-                        return 0;
-                    }
-                })
-                .limit(5)
-                .forEach(item -> {
-                    try {
-                        int orderCount = foodOrderDAO.getItemOrderCount(item.getId());
-                        report.append("- ").append(item.getName())
-                            .append(" (Orders: ").append(orderCount)
-                            .append(")\n");
-                    } catch (SQLException e) {
-                        report.append("- ").append(item.getName()).append("\n");
-                    }
-                });
-            
-            // Low Stock Items
-            report.append("\nLow Stock Items (≤ 5):\n");
-            foodItems.stream()
-                .filter(item -> item.getStockQuantity() <= 5)
-                .forEach(item -> report.append("- ").append(item.getName())
-                    .append(" (Stock: ").append(item.getStockQuantity())
-                    .append(")\n"));
+            new SalesReportWriter(foodOrderDAO, foodItemDAO).write(report, 5, false);
             
             // Show report in dialog
             showReportDialog("Food Sales Report", report.toString());
-        } catch (SQLException e) {
+        } catch (SQLException | IOException e) {
             showError("Error", "Failed to generate food report: " + e.getMessage());
         }
     }
 
+    // Streams the report with every item's totals to a file chosen by the admin
+    private void saveFullReport() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Full Sales Report");
+        fileChooser.setInitialFileName("food-sales-report.txt");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text Files", "*.txt"));
+        File file = fileChooser.showSaveDialog(welcomeLabel.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        new Thread(() -> {
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                new SalesReportWriter(foodOrderDAO, foodItemDAO).write(writer, 5, true);
+                Platform.runLater(() -> showInformation("Report Saved", "Full sales report saved to " + file.getName()));
+            } catch (SQLException | IOException e) {
+                Platform.runLater(() -> showError("Error", "Failed to save sales report: " + e.getMessage()));
+            }
+        }).start();
+    }
+
     @FXML
     protected void handleViewSellerRequests() {
         loadView("admin-seller-requests.fxml");
@@ -241,6 +236,7 @@ public class AdminDashboardController extends AdminBaseController implements Ini
             stage.setScene(scene);
             stage.setMaximized(true);
             stage.centerOnScreen();
+            stopUpdates();
 
             Object controller = fxmlLoader.getController();
             if (controller instanceof AdminBaseController) {
@@ -269,13 +265,14 @@ public class AdminDashboardController extends AdminBaseController implements Ini
     }
 
     private void showReportDialog(String title, String content) {
-        Dialog<String> dialog = new Dialog<>();
+        Dialog<ButtonType> dialog = new Dialog<>();
         dialog.setTitle(title);
         dialog.setHeaderText(null);
 
         // Set the button types
         ButtonType closeButton = new ButtonType("Close", ButtonBar.ButtonData.OK_DONE);
-        dialog.getDialogPane().getButtonTypes().add(closeButton);
+        ButtonType saveButton = new ButtonType("Save Full Report...", ButtonBar.ButtonData.LEFT);
+        dialog.getDialogPane().getButtonTypes().addAll(saveButton, closeButton);
 
         // Create the content
         TextArea textArea = new TextArea(content);
@@ -285,6 +282,10 @@ public class AdminDashboardController extends AdminBaseController implements Ini
         textArea.setPrefColumnCount(50);
         
         dialog.getDialogPane().setContent(textArea);
-        dialog.showAndWait();
+        dialog.showAndWait().ifPresent(result -> {
+            if (result == saveButton) {
+                saveFullReport();
+            }
+        });
     }
 } 
@@ -4,12 +4,14 @@ import com.example.onestopuiu.dao.FoodOrderDAO;
 import com.example.onestopuiu.dao.PaymentDAO;
 import com.example.onestopuiu.dao.UserDAO;
 import com.example.onestopuiu.model.FoodOrder;
-import com.example.onestopuiu.model.FoodOrderItem;
+import com.example.onestopuiu.model.OrderDisplayItem;
 import com.example.onestopuiu.model.Payment;
 import com.example.onestopuiu.model.User;
+import com.example.onestopuiu.util.TableScrollUtils;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -21,7 +23,6 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -54,12 +55,23 @@ public class AdminOrdersController {
     @FXML private Button cancelOrderButton;
     @FXML private Button hideDetailsButton;
 
+    private static final int PAGE_SIZE = 50;
+
     private FoodOrderDAO orderDAO;
     private PaymentDAO paymentDAO;
     private UserDAO userDAO;
     private ObservableList<OrderDisplayItem> ordersList;
     private OrderDisplayItem selectedOrder;
 
+    // Filters of the listing being paged, fixed when it is (re)loaded; null means unfiltered
+    private String statusFilter;
+    private String paymentMethodFilter;
+    private String customerFilter;
+    private boolean hasMoreOrders;
+    private boolean loadingPage;
+    // Bumped on every reload, so a page still loading for the previous listing is dropped
+    private int listingVersion;
+
     public void initialize() {
         orderDAO = new FoodOrderDAO();
         paymentDAO = new PaymentDAO();
@@ -127,6 +139,7 @@ public class AdminOrdersController {
         });
         
         ordersTable.setItems(ordersList);
+        TableScrollUtils.onScrolledNearBottom(ordersTable, this::loadNextPage);
     }
 
     private void setupFilters() {
@@ -138,77 +151,65 @@ public class AdminOrdersController {
     }
 
     private void loadOrders() {
-        try {
-            ordersList.clear();
-            List<FoodOrder> orders = orderDAO.getAll();
-            
-            for (FoodOrder order : orders) {
-                OrderDisplayItem displayItem = new OrderDisplayItem();
-                displayItem.orderId = order.getId();
-                displayItem.status = order.getStatus();
-                displayItem.totalAmount = order.getTotal();
-                displayItem.orderDate = order.getOrderTime().toString();
-                
-                // Get customer info
-                Optional<User> userOpt = userDAO.get(order.getUserId());
-                displayItem.customerName = userOpt.map(User::getUsername).orElse("Unknown");
-                
-                // Get payment info
-                List<Payment> payments = paymentDAO.getPaymentsByOrderId(order.getId());
-                if (!payments.isEmpty()) {
-                    Payment payment = payments.get(0);
-                    displayItem.paymentMethod = payment.getPaymentMethod();
-                    displayItem.contactNumber = getContactFromPayment(payment);
-                    displayItem.address = getAddressFromPayment(payment);
-                    displayItem.orderType = getOrderTypeFromPayment(payment);
-                } else {
-                    displayItem.paymentMethod = "N/A";
-                    displayItem.contactNumber = "N/A";
-                    displayItem.address = "N/A";
-                    displayItem.orderType = "N/A";
-                }
-                
-                // Create items summary
-                StringBuilder itemsBuilder = new StringBuilder();
-                for (FoodOrderItem item : order.getItems()) {
-                    if (itemsBuilder.length() > 0) itemsBuilder.append(", ");
-                    String itemName = item.getFoodItemName() != null ? item.getFoodItemName() : "Item #" + item.getFoodItemId();
-                    itemsBuilder.append(item.getQuantity()).append("x ").append(itemName);
-                }
-                displayItem.itemsSummary = itemsBuilder.toString();
-                
-                ordersList.add(displayItem);
-            }
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            showAlert("Error", "Failed to load orders: " + e.getMessage());
-        }
+        String status = statusFilterCombo.getValue();
+        String type = typeFilterCombo.getValue();
+        String customer = customerSearchField.getText() == null ? "" : customerSearchField.getText().trim();
+        statusFilter = status == null || "All Orders".equals(status) ? null : status;
+        paymentMethodFilter = type == null || "All Types".equals(type) ? null : type;
+        customerFilter = customer.isEmpty() ? null : customer;
+
+        listingVersion++;
+        ordersList.clear();
+        hasMoreOrders = true;
+        loadingPage = false;
+        loadNextPage();
     }
 
-    private String getContactFromPayment(Payment payment) {
-        if (payment.getMobileNumber() != null && !payment.getMobileNumber().trim().isEmpty()) {
-            return payment.getMobileNumber();
-        }
-        return "N/A";
-    }
-
-    private String getAddressFromPayment(Payment payment) {
-        if (payment.getBillingAddress() != null && !payment.getBillingAddress().trim().isEmpty()) {
-            return payment.getBillingAddress();
+    // Scrolling keeps firing near the bottom, so only one page is requested at a time
+    private void loadNextPage() {
+        if (!hasMoreOrders || loadingPage) {
+            return;
         }
-        return "N/A";
-    }
+        loadingPage = true;
+        int version = listingVersion;
+        String status = statusFilter;
+        String paymentMethod = paymentMethodFilter;
+        String customer = customerFilter;
+        // Keyset cursor: continue after the last row already loaded
+        OrderDisplayItem after = ordersList.isEmpty() ? null : ordersList.get(ordersList.size() - 1);
+
+        Task<List<OrderDisplayItem>> pageTask = new Task<>() {
+            @Override
+            protected List<OrderDisplayItem> call() throws Exception {
+                return orderDAO.getOrderDisplayPage(status, paymentMethod, customer, after, PAGE_SIZE);
+            }
+        };
+        pageTask.setOnSucceeded(e -> {
+            if (version != listingVersion) {
+                return;
+            }
+            loadingPage = false;
+            List<OrderDisplayItem> page = pageTask.getValue();
+            ordersList.addAll(page);
+            hasMoreOrders = page.size() == PAGE_SIZE;
+            if (ordersList.isEmpty() && customer != null) {
+                showAlert("No Results", "No orders found for customer containing: " + customer);
+            }
+        });
+        pageTask.setOnFailed(e -> {
+            if (version != listingVersion) {
+                return;
+            }
+            loadingPage = false;
+            hasMoreOrders = false;
+            Throwable error = pageTask.getException();
+            error.printStackTrace();
+            showAlert("Error", "Failed to load orders: " + error.getMessage());
+        });
 
-    private String getOrderTypeFromPayment(Payment payment) {
-        String method = payment.getPaymentMethod();
-        if ("CASH_ON_DELIVERY".equals(method)) {
-            return "🚚 Delivery";
-        } else if ("PICKUP_FROM_CANTEEN".equals(method)) {
-            return "🏫 Pickup";
-        } else {
-            return "💳 " + method;
-        }
+        Thread pageThread = new Thread(pageTask, "admin-orders-page");
+        pageThread.setDaemon(true);
+        pageThread.start();
     }
 
     private void showOrderDetails(OrderDisplayItem order) {
@@ -406,45 +407,14 @@ public class AdminOrdersController {
 
     @FXML
     private void handleApplyFilter() {
-        String statusFilter = statusFilterCombo.getValue();
-        String typeFilter = typeFilterCombo.getValue();
-        
-        ObservableList<OrderDisplayItem> filteredList = FXCollections.observableArrayList();
-        
-        for (OrderDisplayItem order : ordersList) {
-            boolean statusMatch = "All Orders".equals(statusFilter) || order.status.equals(statusFilter);
-            boolean typeMatch = "All Types".equals(typeFilter) || order.paymentMethod.equals(typeFilter);
-            
-            if (statusMatch && typeMatch) {
-                filteredList.add(order);
-            }
-        }
-        
-        ordersTable.setItems(filteredList);
+        // Status, payment type and customer are all filtered in the query
+        loadOrders();
     }
 
     @FXML
     private void handleSearchCustomer() {
-        String searchTerm = customerSearchField.getText().toLowerCase().trim();
-        
-        if (searchTerm.isEmpty()) {
-            ordersTable.setItems(ordersList);
-            return;
-        }
-        
-        ObservableList<OrderDisplayItem> filteredList = FXCollections.observableArrayList();
-        
-        for (OrderDisplayItem order : ordersList) {
-            if (order.customerName.toLowerCase().contains(searchTerm)) {
-                filteredList.add(order);
-            }
-        }
-        
-        ordersTable.setItems(filteredList);
-        
-        if (filteredList.isEmpty()) {
-            showAlert("No Results", "No orders found for customer containing: " + searchTerm);
-        }
+        // Searching only the loaded pages would miss older orders, so the search reloads from the database
+        loadOrders();
     }
 
     @FXML
@@ -576,18 +546,4 @@ public class AdminOrdersController {
         alert.setContentText(message);
         alert.showAndWait();
     }
-
-    // Helper class for table display
-    public static class OrderDisplayItem {
-        public int orderId;
-        public String customerName;
-        public String itemsSummary;
-        public double totalAmount;
-        public String paymentMethod;
-        public String status;
-        public String orderType;
-        public String contactNumber;
-        public String address;
-        public String orderDate;
-    }
 }
\ No newline at end of file
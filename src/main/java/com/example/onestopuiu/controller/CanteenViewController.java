@@ -1,5 +1,6 @@
 package com.example.onestopuiu.controller;
 
+import com.example.onestopuiu.dao.CachedFoodItemDAO;
 import com.example.onestopuiu.dao.FoodItemDAO;
 import com.example.onestopuiu.dao.FoodOrderDAO;
 import com.example.onestopuiu.model.FoodItem;
@@ -7,11 +8,13 @@ import com.example.onestopuiu.model.FoodOrder;
 import com.example.onestopuiu.model.FoodOrderItem;
 import com.example.onestopuiu.model.User;
 import com.example.onestopuiu.util.CartManager;
+import com.example.onestopuiu.util.StockReservationService;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -51,9 +54,10 @@ public class CanteenViewController extends CustomerBaseController {
     @FXML private ProgressIndicator loadingIndicator;
     @FXML private StackPane mainContainer;
 
-    private final FoodItemDAO foodItemDAO = new FoodItemDAO();
+    private final FoodItemDAO foodItemDAO = new CachedFoodItemDAO();
     private final FoodOrderDAO foodOrderDAO = new FoodOrderDAO();
     private final CartManager cartManager = CartManager.getInstance();
+    private final StockReservationService stockReservations = StockReservationService.getInstance();
     private ObservableList<CartItem> cartItems;
     private double totalAmount = 0.0;
 
@@ -246,6 +250,7 @@ public class CanteenViewController extends CustomerBaseController {
                 decrementButton.setOnAction(event -> {
                     CartItem item = getTableRow().getItem();
                     if (item != null) {
+                        stockReservations.release(reservationHolder(), item.getFoodItemId(), 1);
                         if (item.getQuantity() > 1) {
                             item.decrementQuantity();
                             cartTable.refresh();
@@ -260,6 +265,7 @@ public class CanteenViewController extends CustomerBaseController {
                 removeButton.setOnAction(event -> {
                     CartItem item = getTableRow().getItem();
                     if (item != null) {
+                        stockReservations.release(reservationHolder(), item.getFoodItemId(), item.getQuantity());
                         cartItems.remove(item);
                         updateTotalAmount();
                     }
@@ -306,6 +312,8 @@ public class CanteenViewController extends CustomerBaseController {
                     // Filter to only available items
                     items.removeIf(item -> !item.isAvailable() || item.getStockQuantity() <= 0);
                 }
+                // Count stock up front so adding to the cart does not read the database
+                stockReservations.preload();
 
                 // Debug: Print loaded items and their stock
                 System.out.println("DEBUG: Loaded " + items.size() + " items from database:");
@@ -349,26 +357,56 @@ public class CanteenViewController extends CustomerBaseController {
             return;
         }
 
-        // Look for existing item in cart
-        for (CartItem cartItem : cartItems) {
-            if (cartItem.getFoodItemId() == item.getId()) {
-                if (cartItem.getQuantity() < item.getStockQuantity()) {
+        // Reserve the unit first so other customers cannot claim the same stock
+        reserveOne(item, () -> {
+            // Look for existing item in cart
+            for (CartItem cartItem : cartItems) {
+                if (cartItem.getFoodItemId() == item.getId()) {
                     cartItem.incrementQuantity();
                     cartTable.refresh();
                     updateTotalAmount();
                     showInformation("Added to Cart", item.getName() + " quantity increased!");
-                } else {
-                    showError("Stock Limit", "Cannot add more. Only " + item.getStockQuantity() + " available.");
+                    return;
                 }
-                return;
             }
-        }
-        
-        // Add new item to cart
-        cartItems.add(new CartItem(item));
-        cartTable.refresh();
-        updateTotalAmount();
-        showInformation("Added to Cart", item.getName() + " added to your cart!");
+
+            // Add new item to cart
+            cartItems.add(new CartItem(item));
+            cartTable.refresh();
+            updateTotalAmount();
+            showInformation("Added to Cart", item.getName() + " added to your cart!");
+        });
+    }
+
+    // Reserving may re-read the item when refused, so it runs off the FX thread
+    private void reserveOne(FoodItem item, Runnable onReserved) {
+        String holder = reservationHolder();
+        Task<Boolean> task = new Task<>() {
+            @Override
+            protected Boolean call() throws Exception {
+                return stockReservations.reserve(holder, item.getId(), 1);
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (task.getValue()) {
+                onReserved.run();
+            } else {
+                showError("Stock Limit", "Cannot add more. No more " + item.getName() + " available right now.");
+            }
+        });
+        task.setOnFailed(event -> {
+            Throwable error = task.getException();
+            error.printStackTrace();
+            showError("Database Error", "Failed to check stock: " + error.getMessage());
+        });
+
+        Thread thread = new Thread(task, "cart-reserve");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private String reservationHolder() {
+        return StockReservationService.cartHolder(currentUser.getId());
     }
 
     private void updateTotalAmount() {
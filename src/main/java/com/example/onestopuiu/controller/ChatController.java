@@ -1,28 +1,81 @@
 package com.example.onestopuiu.controller;
 
+import com.example.onestopuiu.util.VirtualThreads;
 import javafx.application.Platform;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ChatController {
-    @FXML private TextArea chatArea;
+    private static final String SERVER_HOST = "localhost";
+    private static final int SERVER_PORT = 5000;
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    // Reconnect backoff: doubles from 1s up to 30s, with some jitter so clients don't retry in lockstep
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    // Frame types of the binary chat protocol (see server OutboundMessage)
+    private static final byte TYPE_CONTROL = 0;
+    private static final byte TYPE_MESSAGE = 1;
+    private static final byte TYPE_HISTORY = 2;
+
+    // Transcript lines kept in memory; older ones scroll away (the server keeps full history)
+    private static final int MAX_TRANSCRIPT_LINES = 1000;
+    // Queued in place of a line to wipe the transcript; compared by identity
+    static final String CLEAR_TRANSCRIPT = new String("CLEAR_TRANSCRIPT");
+
+    @FXML private ListView<String> chatList;
     @FXML private TextField messageField;
     @FXML private Button sendButton;
+    @FXML private Button earlierButton;
     @FXML private Label statusLabel;
-    
-    private PrintWriter out;
-    private BufferedReader in;
-    private Socket socket;
+
+    private volatile PrintWriter out;
+    private volatile Socket socket;
     private String username;
     // private boolean isSeller; // Not currently used
     private String chatId;
+    // Sequence number of the last chat message shown; sent on reconnect so only missed messages are replayed
+    private volatile long lastMessageId;
+    private volatile boolean closing;
+    // Sequence number to page back from for older messages, or 0 when there are none
+    private volatile long olderHistoryCursor;
+
+    // Lines received but not yet shown. The listener thread only queues them; a single
+    // runLater drains everything that arrived, so a replay burst costs one layout pass.
+    private final ConcurrentLinkedQueue<String> pendingLines = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
 
     public void initialize() {
         System.out.println("ChatController initialized");
+        chatList.setCellFactory(list -> new ListCell<>() {
+            {
+                setWrapText(true);
+                // Wrap to the list width instead of scrolling sideways
+                prefWidthProperty().bind(list.widthProperty().subtract(20));
+                setMaxWidth(Control.USE_PREF_SIZE);
+            }
+
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty ? null : item);
+            }
+        });
         sendButton.setOnAction(e -> sendMessage());
         messageField.setOnAction(e -> sendMessage());
+        earlierButton.setOnAction(e -> requestEarlierMessages());
+        showEarlierButton(false);
     }
 
     public void setUserInfo(String username, boolean isSeller, String chatId) {
@@ -30,74 +83,260 @@ public class ChatController {
         this.username = username;
         // this.isSeller = isSeller; // Not currently used
         this.chatId = chatId;
-        connectToServer();
+        // Connect and listen on a virtual thread (a platform thread before Java 21)
+        VirtualThreads.start("chat-listener", this::runConnection);
     }
 
-    private void connectToServer() {
-        try {
-            System.out.println("Attempting to connect to chat server...");
-            socket = new Socket("localhost", 5000);
-            System.out.println("Socket connected successfully");
-            
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            System.out.println("Streams initialized");
-
-            // Send username and chatId to server, separated by ::
-            System.out.println("Sending username and chatId to server: " + username + "::" + chatId);
-            out.println(username + "::" + chatId);
-
-            // Start a thread to listen for messages
-            new Thread(() -> {
-                try {
-                    System.out.println("Starting message listener thread");
-                    String line;
-                    while ((line = in.readLine()) != null) {
-                        final String message = line;
-                        System.out.println("Received message: " + message);
-                        Platform.runLater(() -> {
-                            if (message.startsWith("MESSAGE")) {
-                                chatArea.appendText(message.substring(8) + "\n");
-                            } else if (message.equals("NAME_TAKEN")) {
-                                statusLabel.setText("Username is taken. Please choose another.");
-                                System.out.println("Username was taken");
-                            } else if (message.equals("NAME_ACCEPTED")) {
-                                statusLabel.setText("Connected to chat server");
-                                System.out.println("Username was accepted");
-                            }
-                        });
+    // Keeps the chat connected until the window closes, reconnecting with exponential backoff
+    private void runConnection() {
+        long backoff = INITIAL_BACKOFF_MS;
+        while (!closing) {
+            boolean accepted = false;
+            try {
+                accepted = connectAndListen();
+            } catch (IOException e) {
+                System.out.println("Chat connection failed: " + e.getMessage());
+            } finally {
+                out = null;
+                closeSocket();
+            }
+            if (closing) {
+                break;
+            }
+
+            if (accepted) {
+                backoff = INITIAL_BACKOFF_MS;
+            }
+            long delay = backoff + ThreadLocalRandom.current().nextLong(backoff / 4 + 1);
+            Platform.runLater(() -> statusLabel.setText(
+                    "Connection lost. Reconnecting in " + Math.max(1, delay / 1000) + "s..."));
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    /**
+     * One connection: negotiates binary frames (which carry message ids), resumes after the
+     * last message we have, and reads until the socket drops. Returns whether the server
+     * accepted us, so the backoff only resets after a connection that actually worked.
+     */
+    private boolean connectAndListen() throws IOException {
+        System.out.println("Attempting to connect to chat server...");
+        Socket s = new Socket();
+        socket = s;
+        if (closing) {
+            // The window closed before the socket was published; closeConnection() couldn't see it
+            return false;
+        }
+        s.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), CONNECT_TIMEOUT_MS);
+        System.out.println("Socket connected successfully");
+
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+
+        writer.println("PROTOCOL binary");
+        if (lastMessageId > 0) {
+            writer.println("RESUME " + lastMessageId);
+        }
+        // Send username and chatId to server, separated by ::
+        System.out.println("Sending username and chatId to server: " + username + "::" + chatId);
+        writer.println(username + "::" + chatId);
+
+        String reply = readLine(in);
+        if (!"PROTOCOL_ACCEPTED binary".equals(reply)) {
+            System.out.println("Chat server refused the connection: " + reply);
+            return false;
+        }
+        out = writer;
+
+        boolean accepted = false;
+        boolean resumed = false;
+        // Older messages requested with /history, shown above the transcript once the page is complete
+        List<String> historyPage = new ArrayList<>();
+        System.out.println("Starting message listener");
+        while (true) {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return accepted;
+            }
+            byte type = in.readByte();
+            long id = in.readLong();
+            in.readLong(); // timestamp
+            byte[] body = new byte[length - 1 - Long.BYTES - Long.BYTES];
+            in.readFully(body);
+            String text = new String(body, StandardCharsets.UTF_8);
+
+            if (type == TYPE_MESSAGE) {
+                // Id 0 marks server notices that aren't part of the room history
+                if (id == 0 || id > lastMessageId) {
+                    if (id > 0) {
+                        lastMessageId = id;
                     }
-                } catch (IOException e) {
-                    System.out.println("Error in message listener: " + e.getMessage());
-                    Platform.runLater(() -> statusLabel.setText("Connection lost"));
+                    appendLine(text);
                 }
-            }).start();
+            } else if (type == TYPE_HISTORY) {
+                historyPage.add(text);
+            } else if (type == TYPE_CONTROL) {
+                if (text.startsWith("RESUMED ")) {
+                    resumed = true;
+                } else if (text.startsWith("HISTORY_MORE ") || text.equals("HISTORY_END")) {
+                    olderHistoryCursor = text.equals("HISTORY_END") ? 0 : parseCursor(text.substring(13));
+                    prependLines(List.copyOf(historyPage));
+                    historyPage.clear();
+                } else if (text.equals("NAME_TAKEN")) {
+                    Platform.runLater(() -> statusLabel.setText("Username is taken. Please choose another."));
+                    System.out.println("Username was taken");
+                    closing = true;
+                } else if (text.equals("NAME_ACCEPTED")) {
+                    accepted = true;
+                    if (!resumed) {
+                        // The server started us afresh (room moved, or its history was reset), so
+                        // the old cursor means nothing; otherwise we'd drop messages below it
+                        lastMessageId = 0;
+                        olderHistoryCursor = 0;
+                        // The replay that follows starts from the top, so drop what we showed
+                        // before instead of listing those messages twice
+                        appendLine(CLEAR_TRANSCRIPT);
+                    }
+                    Platform.runLater(() -> statusLabel.setText("Connected to chat server"));
+                    System.out.println("Username was accepted");
+                }
+            }
+        }
+    }
+
+    private void appendLine(String line) {
+        pendingLines.add(line);
+        if (flushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::flushPendingLines);
+        }
+    }
 
-        } catch (IOException e) {
-            System.out.println("Failed to connect to server: " + e.getMessage());
-            statusLabel.setText("Could not connect to server");
+    private void flushPendingLines() {
+        // Clear the flag first so a line queued during the drain schedules another flush
+        flushScheduled.set(false);
+        ObservableList<String> items = chatList.getItems();
+        if (drainInto(pendingLines, items, MAX_TRANSCRIPT_LINES)) {
+            chatList.scrollTo(items.size() - 1);
         }
     }
 
+    /**
+     * Moves the queued lines into the transcript in one update, keeping at most
+     * {@code maxLines}. A queued {@link #CLEAR_TRANSCRIPT} drops everything before it.
+     * Returns whether lines were added.
+     */
+    static boolean drainInto(Queue<String> pending, ObservableList<String> items, int maxLines) {
+        List<String> batch = new ArrayList<>();
+        boolean clear = false;
+        String line;
+        while ((line = pending.poll()) != null) {
+            if (line == CLEAR_TRANSCRIPT) {
+                batch.clear();
+                clear = true;
+            } else {
+                batch.add(line);
+            }
+        }
+        if (clear) {
+            items.clear();
+        }
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        if (batch.size() >= maxLines) {
+            items.setAll(batch.subList(batch.size() - maxLines, batch.size()));
+        } else {
+            int overflow = items.size() + batch.size() - maxLines;
+            if (overflow > 0) {
+                items.remove(0, overflow);
+            }
+            items.addAll(batch);
+        }
+        return true;
+    }
+
+    // Shows a page of older messages above the transcript; runs the flush first to keep lines in order
+    private void prependLines(List<String> lines) {
+        Platform.runLater(() -> {
+            flushPendingLines();
+            if (!lines.isEmpty()) {
+                chatList.getItems().addAll(0, lines);
+                chatList.scrollTo(0);
+            }
+            showEarlierButton(olderHistoryCursor > 0);
+        });
+    }
+
+    private static long parseCursor(String value) {
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void requestEarlierMessages() {
+        PrintWriter writer = out;
+        long cursor = olderHistoryCursor;
+        if (writer != null && cursor > 0) {
+            earlierButton.setDisable(true);
+            writer.println("/history " + cursor);
+        }
+    }
+
+    private void showEarlierButton(boolean show) {
+        earlierButton.setVisible(show);
+        earlierButton.setManaged(show);
+        earlierButton.setDisable(false);
+    }
+
+    // Reads one newline-terminated line of the text handshake before binary frames start
+    private static String readLine(DataInputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        return b == -1 && line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8).trim();
+    }
+
     private void sendMessage() {
         String message = messageField.getText().trim();
         if (!message.isEmpty()) {
+            PrintWriter writer = out;
+            if (writer == null) {
+                statusLabel.setText("Not connected. Waiting to reconnect...");
+                return;
+            }
             System.out.println("Sending message: " + message);
-            out.println(message);
+            writer.println(message);
             messageField.clear();
         }
     }
 
     public void closeConnection() {
         System.out.println("Closing chat connection");
-        try {
-            if (socket != null) socket.close();
-            if (out != null) out.close();
-            if (in != null) in.close();
-            System.out.println("Chat connection closed successfully");
-        } catch (IOException e) {
-            System.out.println("Error closing chat connection: " + e.getMessage());
-            e.printStackTrace();
+        closing = true;
+        closeSocket();
+        System.out.println("Chat connection closed successfully");
+    }
+
+    private void closeSocket() {
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                System.out.println("Error closing chat connection: " + e.getMessage());
+            }
         }
     }
-} 
+}
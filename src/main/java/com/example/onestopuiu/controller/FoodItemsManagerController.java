@@ -1,5 +1,6 @@
 package com.example.onestopuiu.controller;
 
+import com.example.onestopuiu.dao.CachedFoodItemDAO;
 import com.example.onestopuiu.dao.FoodItemDAO;
 import com.example.onestopuiu.model.FoodItem;
 import com.example.onestopuiu.util.LocalImageUploader;
@@ -53,7 +54,7 @@ public class FoodItemsManagerController extends AdminBaseController {
     @FXML private TableColumn<FoodItem, Integer> stockQuantityColumn;
     @FXML private TableColumn<FoodItem, Void> actionsColumn;
 
-    private final FoodItemDAO foodItemDAO = new FoodItemDAO();
+    private final FoodItemDAO foodItemDAO = new CachedFoodItemDAO();
     private FoodItem selectedItem;
     private String selectedImagePath;
     // Upload directory - commented out as not currently used
@@ -7,6 +7,7 @@ import com.example.onestopuiu.model.User;
 import com.example.onestopuiu.model.FoodOrder;
 import com.example.onestopuiu.model.FoodOrderItem;
 import com.example.onestopuiu.util.CartManager;
+import com.example.onestopuiu.util.StockReservationService;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -19,6 +20,8 @@ import javafx.stage.Stage;
 import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 public class SimplePaymentController {
 
@@ -138,6 +141,7 @@ public class SimplePaymentController {
             
             // Clear the cart (in case user goes back without completing payment)
             CartManager.getInstance().clearCanteenCart();
+            StockReservationService.getInstance().releaseAll(StockReservationService.cartHolder(currentUser.getId()));
             
             Stage stage = (Stage) backButton.getScene().getWindow();
             Scene scene = new Scene(root);
@@ -175,17 +179,21 @@ public class SimplePaymentController {
                     order.setUserId(currentUser.getId());
                     
                     List<FoodOrderItem> orderItems = new ArrayList<>();
+                    Map<Integer, Integer> quantities = new HashMap<>();
                     for (Object item : cartItems) {
                         FoodOrderItem orderItem = new FoodOrderItem();
                         orderItem.setFoodItemId((Integer) item.getClass().getMethod("getFoodItemId").invoke(item));
                         orderItem.setQuantity((Integer) item.getClass().getMethod("getQuantity").invoke(item));
                         orderItem.setUnitPrice((Double) item.getClass().getMethod("getUnitPrice").invoke(item));
                         orderItems.add(orderItem);
+                        quantities.merge(orderItem.getFoodItemId(), orderItem.getQuantity(), Integer::sum);
                     }
                     order.setItems(orderItems);
                     
-                    // Save the order
-                    int orderId = foodOrderDAO.save(order);
+                    // Save the order against the cart's stock reservation
+                    int orderId = StockReservationService.getInstance().checkout(
+                        StockReservationService.cartHolder(currentUser.getId()), quantities,
+                        () -> foodOrderDAO.save(order));
                     
                     // Create payment record
                     Payment payment = new Payment();
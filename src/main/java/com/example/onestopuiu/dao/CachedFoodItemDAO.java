@@ -0,0 +1,182 @@
+package com.example.onestopuiu.dao;
+
+import com.example.onestopuiu.model.FoodItem;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FoodItemDAO that serves reads from a shared, immutable snapshot of the menu.
+ * The snapshot is reloaded after a TTL or when any write through this DAO (or an
+ * order placement) changes the food_items table. Callers always get their own
+ * FoodItem copies, so editing a returned item never touches the snapshot.
+ */
+public class CachedFoodItemDAO extends FoodItemDAO {
+    private static final long TTL_MS = TimeUnit.SECONDS.toMillis(60);
+
+    private static final Object LOAD_LOCK = new Object();
+    private static volatile MenuSnapshot snapshot;
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private static final AtomicLong generation = new AtomicLong();
+
+    @Override
+    public Optional<FoodItem> get(int id) throws SQLException {
+        FoodItem item = snapshot().byId.get(id);
+        return item == null ? Optional.empty() : Optional.of(copyOf(item));
+    }
+
+    @Override
+    public List<FoodItem> getAll() throws SQLException {
+        return copyOf(snapshot().all);
+    }
+
+    @Override
+    public List<FoodItem> getByCategory(String category) throws SQLException {
+        // Matches the case-insensitive comparison the database collation applies
+        String key = category == null ? null : category.toLowerCase(Locale.ROOT);
+        return copyOf(snapshot().byCategory.getOrDefault(key, Collections.emptyList()));
+    }
+
+    @Override
+    public List<FoodItem> getAvailableItems() throws SQLException {
+        return copyOf(snapshot().available);
+    }
+
+    @Override
+    public int save(FoodItem item) throws SQLException {
+        try {
+            return super.save(item);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void update(FoodItem item) throws SQLException {
+        try {
+            super.update(item);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void delete(int id) throws SQLException {
+        try {
+            super.delete(id);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public boolean updateStock(int id, int quantity) throws SQLException {
+        try {
+            return super.updateStock(id, quantity);
+        } finally {
+            invalidate();
+        }
+    }
+
+    /**
+     * Drops the current snapshot; the next read reloads the menu.
+     */
+    public static void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+    public static double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    private MenuSnapshot snapshot() throws SQLException {
+        MenuSnapshot current = snapshot;
+        if (current != null && !current.isExpired()) {
+            hits.incrementAndGet();
+            return current;
+        }
+        synchronized (LOAD_LOCK) {
+            current = snapshot;
+            if (current != null && !current.isExpired()) {
+                hits.incrementAndGet();
+                return current;
+            }
+            misses.incrementAndGet();
+            long loadGeneration = generation.get();
+            current = new MenuSnapshot(loadAll());
+            if (generation.get() == loadGeneration) {
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private static List<FoodItem> copyOf(List<FoodItem> items) {
+        List<FoodItem> copies = new ArrayList<>(items.size());
+        for (FoodItem item : items) {
+            copies.add(copyOf(item));
+        }
+        return copies;
+    }
+
+    private static FoodItem copyOf(FoodItem item) {
+        FoodItem copy = new FoodItem(item.getId(), item.getName(), item.getPrice(), item.getDescription(),
+                item.getCategory(), item.isAvailable(), item.getImage(), item.getStockQuantity());
+        copy.setImagePath(item.getImagePath());
+        return copy;
+    }
+
+    private static final class MenuSnapshot {
+        final List<FoodItem> all;
+        final List<FoodItem> available;
+        final Map<Integer, FoodItem> byId;
+        final Map<String, List<FoodItem>> byCategory;
+        final long loadedAt = System.currentTimeMillis();
+
+        MenuSnapshot(List<FoodItem> items) {
+            List<FoodItem> availableItems = new ArrayList<>();
+            Map<Integer, FoodItem> idIndex = new HashMap<>();
+            Map<String, List<FoodItem>> categoryIndex = new HashMap<>();
+            for (FoodItem item : items) {
+                idIndex.put(item.getId(), item);
+                if (item.isAvailable()) {
+                    availableItems.add(item);
+                }
+                if (item.getCategory() != null) {
+                    categoryIndex.computeIfAbsent(item.getCategory().toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+                            .add(item);
+                }
+            }
+            categoryIndex.replaceAll((category, list) -> List.copyOf(list));
+
+            this.all = List.copyOf(items);
+            this.available = List.copyOf(availableItems);
+            this.byId = Map.copyOf(idIndex);
+            this.byCategory = Map.copyOf(categoryIndex);
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - loadedAt >= TTL_MS;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.onestopuiu.dao;
+
+import com.example.onestopuiu.model.ItemSales;
+import com.example.onestopuiu.util.DatabaseConnection;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pre-aggregated sales of completed orders per (order date, food item), so sales reports
+ * read a few rows per day instead of summing every order.
+ *
+ * daily_sales_orders records which orders are already counted. An order is added to the
+ * rollup when it becomes completed and taken out again if it leaves that status, in the
+ * same transaction as the status change. {@link #catchUp(int)} repairs anything that
+ * changed without going through FoodOrderDAO, and backfills orders from before the rollup
+ * existed.
+ */
+public class DailySalesDAO {
+    private static volatile boolean tablesCreated;
+
+    // Adds (sign 1) or subtracts (sign -1) one order's items to its day's rows
+    private static final String APPLY_ORDER_SQL =
+        "INSERT INTO daily_sales (sales_date, food_item_id, order_count, quantity, amount) " +
+        "SELECT DATE(o.order_time), i.food_item_id, ?, ? * SUM(i.quantity), ? * SUM(i.quantity * i.unit_price) " +
+        "FROM food_orders o JOIN food_order_items i ON i.order_id = o.id " +
+        "WHERE o.id = ? GROUP BY DATE(o.order_time), i.food_item_id " +
+        "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+        "quantity = quantity + VALUES(quantity), amount = amount + VALUES(amount)";
+
+    public DailySalesDAO() {
+        createTables();
+    }
+
+    // Create the rollup tables if they don't exist; done once per run
+    private static synchronized void createTables() {
+        if (tablesCreated) {
+            return;
+        }
+        String createSalesSQL = """
+            CREATE TABLE IF NOT EXISTS daily_sales (
+                sales_date DATE NOT NULL,
+                food_item_id INT NOT NULL,
+                order_count INT NOT NULL DEFAULT 0,
+                quantity INT NOT NULL DEFAULT 0,
+                amount DECIMAL(12,2) NOT NULL DEFAULT 0,
+                PRIMARY KEY (sales_date, food_item_id),
+                INDEX idx_daily_sales_item (food_item_id)
+            )
+            """;
+        String createOrdersSQL = """
+            CREATE TABLE IF NOT EXISTS daily_sales_orders (
+                order_id INT PRIMARY KEY,
+                sales_date DATE NOT NULL
+            )
+            """;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(createSalesSQL);
+            stmt.executeUpdate(createOrdersSQL);
+            tablesCreated = true;
+            System.out.println("[DailySalesDAO] Daily sales tables created/verified successfully");
+        } catch (SQLException e) {
+            System.err.println("[DailySalesDAO] Error creating daily sales tables: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Brings an order's contribution to the rollup in line with whether it is completed.
+     * Runs on the caller's connection so it commits or rolls back with the status change.
+     * Safe to repeat: an order is only ever counted once.
+     */
+    public void syncOrder(Connection conn, int orderId, boolean completed) throws SQLException {
+        if (completed) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT IGNORE INTO daily_sales_orders (order_id, sales_date) " +
+                "SELECT id, DATE(order_time) FROM food_orders WHERE id = ?")) {
+                stmt.setInt(1, orderId);
+                if (stmt.executeUpdate() == 1) {
+                    applyOrder(conn, orderId, 1);
+                }
+            }
+        } else {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                "DELETE FROM daily_sales_orders WHERE order_id = ?")) {
+                stmt.setInt(1, orderId);
+                if (stmt.executeUpdate() == 1) {
+                    applyOrder(conn, orderId, -1);
+                }
+            }
+        }
+    }
+
+    private void applyOrder(Connection conn, int orderId, int sign) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(APPLY_ORDER_SQL)) {
+            stmt.setInt(1, sign);
+            stmt.setInt(2, sign);
+            stmt.setInt(3, sign);
+            stmt.setInt(4, orderId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Adds up to {@code batchSize} completed orders missing from the rollup and removes up to
+     * {@code batchSize} counted orders that are no longer completed, one transaction per
+     * order. Returns how many orders were fixed; call again while it returns a full batch.
+     */
+    public int catchUp(int batchSize) throws SQLException {
+        List<Integer> missing = queryOrderIds(
+            "SELECT o.id FROM food_orders o LEFT JOIN daily_sales_orders d ON d.order_id = o.id " +
+            "WHERE o.status = 'completed' AND d.order_id IS NULL ORDER BY o.id LIMIT ?", batchSize);
+        List<Integer> stale = queryOrderIds(
+            "SELECT d.order_id FROM daily_sales_orders d JOIN food_orders o ON o.id = d.order_id " +
+            "WHERE o.status <> 'completed' ORDER BY d.order_id LIMIT ?", batchSize);
+
+        int fixed = 0;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int orderId : missing) {
+                    syncOrder(conn, orderId, true);
+                    conn.commit();
+                    fixed++;
+                }
+                for (int orderId : stale) {
+                    syncOrder(conn, orderId, false);
+                    conn.commit();
+                    fixed++;
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return fixed;
+    }
+
+    private List<Integer> queryOrderIds(String query, int limit) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Sales of completed orders placed on days in [from, to); null bounds are open.
+     */
+    public double getSalesTotal(LocalDate from, LocalDate to) throws SQLException {
+        StringBuilder query = new StringBuilder("SELECT SUM(amount) FROM daily_sales WHERE 1 = 1");
+        List<Object> params = dateRange(query, from, to);
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : 0.0;
+            }
+        }
+    }
+
+    /**
+     * Sales per day for days in [from, to), oldest first; days without sales are absent.
+     */
+    public Map<LocalDate, Double> getDailyTotals(LocalDate from, LocalDate to) throws SQLException {
+        StringBuilder query = new StringBuilder("SELECT sales_date, SUM(amount) FROM daily_sales WHERE 1 = 1");
+        List<Object> params = dateRange(query, from, to);
+        query.append(" GROUP BY sales_date ORDER BY sales_date");
+
+        Map<LocalDate, Double> totals = new TreeMap<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(rs.getDate(1).toLocalDate(), rs.getDouble(2));
+                }
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Completed sales per food item for days in [from, to), best sellers first.
+     */
+    public List<ItemSales> getItemSales(LocalDate from, LocalDate to) throws SQLException {
+        StringBuilder query = new StringBuilder(
+            "SELECT f.id, f.name, f.stock_quantity, SUM(d.quantity) AS quantity_sold, SUM(d.amount) AS revenue " +
+            "FROM daily_sales d JOIN food_items f ON f.id = d.food_item_id WHERE 1 = 1");
+        List<Object> params = dateRange(query, from, to);
+        query.append(" GROUP BY f.id, f.name, f.stock_quantity ORDER BY quantity_sold DESC, f.id");
+
+        List<ItemSales> items = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new ItemSales(
+                        rs.getInt("id"),
+                        rs.getString("name"),
+                        rs.getInt("stock_quantity"),
+                        rs.getInt("quantity_sold"),
+                        rs.getDouble("revenue")
+                    ));
+                }
+            }
+        }
+        return items;
+    }
+
+    private static List<Object> dateRange(StringBuilder query, LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        if (from != null) {
+            query.append(" AND sales_date >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            query.append(" AND sales_date < ?");
+            params.add(Date.valueOf(to));
+        }
+        return params;
+    }
+}
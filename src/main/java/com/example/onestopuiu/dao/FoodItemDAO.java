@@ -1,11 +1,14 @@
 package com.example.onestopuiu.dao;
 
 import com.example.onestopuiu.model.FoodItem;
+import com.example.onestopuiu.util.DashboardStatsService;
 import com.example.onestopuiu.util.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class FoodItemDAO implements DAO<FoodItem> {
@@ -106,6 +109,7 @@ public class FoodItemDAO implements DAO<FoodItem> {
                 if (generatedKeys.next()) {
                     int id = generatedKeys.getInt(1);
                     item.setId(id);
+                    DashboardStatsService.getInstance().stockChanged(id, item.getStockQuantity());
                     return id;
                 }
                 throw new SQLException("Failed to get generated ID after saving food item");
@@ -130,6 +134,7 @@ public class FoodItemDAO implements DAO<FoodItem> {
             
             stmt.executeUpdate();
         }
+        DashboardStatsService.getInstance().stockChanged(item.getId(), item.getStockQuantity());
     }
 
     @Override
@@ -140,6 +145,7 @@ public class FoodItemDAO implements DAO<FoodItem> {
             stmt.setInt(1, id);
             stmt.executeUpdate();
         }
+        DashboardStatsService.getInstance().itemRemoved(id);
     }
 
     public List<FoodItem> getByCategory(String category) throws SQLException {
@@ -211,6 +217,75 @@ public class FoodItemDAO implements DAO<FoodItem> {
         return foodItems;
     }
 
+    /**
+     * Items with at most {@code threshold} units left, lowest stock first.
+     */
+    public List<FoodItem> getLowStockItems(int threshold) throws SQLException {
+        List<FoodItem> foodItems = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT * FROM food_items WHERE stock_quantity <= ? ORDER BY stock_quantity, id")) {
+            stmt.setInt(1, threshold);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    foodItems.add(new FoodItem(
+                        rs.getInt("id"),
+                        rs.getString("name"),
+                        rs.getDouble("price"),
+                        rs.getString("description"),
+                        rs.getString("category"),
+                        rs.getBoolean("available"),
+                        rs.getString("image"),
+                        rs.getInt("stock_quantity")
+                    ));
+                }
+            }
+        }
+        return foodItems;
+    }
+
+    /**
+     * Loads every food item without per-row logging. Unlike getAll(), errors are propagated.
+     */
+    protected List<FoodItem> loadAll() throws SQLException {
+        List<FoodItem> foodItems = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM food_items ORDER BY id")) {
+            
+            while (rs.next()) {
+                FoodItem item = new FoodItem(
+                    rs.getInt("id"),
+                    rs.getString("name"),
+                    rs.getDouble("price"),
+                    rs.getString("description"),
+                    rs.getString("category"),
+                    rs.getBoolean("available"),
+                    rs.getString("image"),
+                    rs.getInt("stock_quantity")
+                );
+                foodItems.add(item);
+            }
+        }
+        return foodItems;
+    }
+
+    /**
+     * Current stock_quantity of every food item, keyed by item id.
+     */
+    public Map<Integer, Integer> getStockLevels() throws SQLException {
+        Map<Integer, Integer> stockLevels = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, stock_quantity FROM food_items")) {
+            
+            while (rs.next()) {
+                stockLevels.put(rs.getInt("id"), rs.getInt("stock_quantity"));
+            }
+        }
+        return stockLevels;
+    }
+
     public boolean updateStock(int id, int quantity) throws SQLException {
         String query = "UPDATE food_items SET available = ? WHERE id = ?";
         
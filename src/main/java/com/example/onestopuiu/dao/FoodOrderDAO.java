@@ -2,93 +2,119 @@ package com.example.onestopuiu.dao;
 
 import com.example.onestopuiu.model.FoodOrder;
 import com.example.onestopuiu.model.FoodOrderItem;
+import com.example.onestopuiu.model.ItemSales;
+import com.example.onestopuiu.model.OrderDisplayItem;
+import com.example.onestopuiu.util.DashboardStatsService;
 import com.example.onestopuiu.util.DatabaseConnection;
+import com.example.onestopuiu.util.OrderSchedulerService;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 public class FoodOrderDAO implements DAO<FoodOrder> {
     
+    // Orders joined with their items; an order without items yields a single row with NULL item columns
+    private static final String ORDERS_WITH_ITEMS_QUERY =
+        "SELECT o.id, o.user_id, o.order_time, o.status, " +
+        "i.id AS item_id, i.food_item_id, i.quantity, i.unit_price, f.name AS item_name " +
+        "FROM food_orders o " +
+        "LEFT JOIN (food_order_items i JOIN food_items f ON i.food_item_id = f.id) ON i.order_id = o.id ";
+
+    // Units sold and revenue per food item from completed orders, best sellers first, like the
+    // daily_sales rollup; items never sold count as zero
+    private static final String ITEM_SALES_QUERY =
+        "SELECT f.id, f.name, f.stock_quantity, " +
+        "COALESCE(SUM(i.quantity), 0) AS quantity_sold, " +
+        "COALESCE(SUM(i.quantity * i.unit_price), 0) AS revenue " +
+        "FROM food_items f LEFT JOIN (food_order_items i " +
+        "JOIN food_orders o ON o.id = i.order_id AND o.status = '" + FoodOrder.STATUS_COMPLETED + "') " +
+        "ON i.food_item_id = f.id " +
+        "GROUP BY f.id, f.name, f.stock_quantity " +
+        "ORDER BY quantity_sold DESC, f.id";
+
+    // Latest payment of an order, matching PaymentDAO.getPaymentsByOrderId() ordering
+    private static final String LATEST_PAYMENT_ID =
+        "(SELECT p2.payment_id FROM payments p2 WHERE p2.order_id = o.id " +
+        "ORDER BY p2.payment_date DESC, p2.payment_id DESC LIMIT 1)";
+
+    private final DailySalesDAO dailySalesDAO = new DailySalesDAO();
+
     @Override
     public Optional<FoodOrder> get(int id) throws SQLException {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT * FROM food_orders WHERE id = ?")) {
-            
-            stmt.setInt(1, id);
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                FoodOrder order = new FoodOrder();
-                order.setId(rs.getInt("id"));
-                order.setUserId(rs.getInt("user_id"));
-                order.setOrderTime(rs.getTimestamp("order_time"));
-                order.setStatus(rs.getString("status"));
-                order.setItems(getFoodOrderItems(conn, order.getId()));
-                return Optional.of(order);
-            }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            List<FoodOrder> orders = queryOrdersWithItems(conn,
+                ORDERS_WITH_ITEMS_QUERY + "WHERE o.id = ? ORDER BY i.id", id);
+            return orders.stream().findFirst();
         }
-        return Optional.empty();
     }
 
     @Override
     public List<FoodOrder> getAll() throws SQLException {
-        List<FoodOrder> orders = new ArrayList<>();
-        System.out.println("\n[FoodOrderDAO] Getting all food orders...");
-        
         try (Connection conn = DatabaseConnection.getConnection()) {
-            System.out.println("[FoodOrderDAO] Connected to database");
-            
-            // First, get all orders
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery("SELECT * FROM food_orders")) {
-                
-                System.out.println("[FoodOrderDAO] Executing query: SELECT * FROM food_orders");
-                int count = 0;
-                
-                while (rs.next()) {
-                    count++;
-                    int orderId = rs.getInt("id");
-                    System.out.println("\n[FoodOrderDAO] Processing order #" + count + ":");
-                    System.out.println("[FoodOrderDAO] Order ID: " + orderId);
-                    System.out.println("[FoodOrderDAO] User ID: " + rs.getInt("user_id"));
-                    System.out.println("[FoodOrderDAO] Status: " + rs.getString("status"));
-                    
-                    FoodOrder order = new FoodOrder();
-                    order.setId(orderId);
-                    order.setUserId(rs.getInt("user_id"));
-                    order.setOrderTime(rs.getTimestamp("order_time"));
-                    order.setStatus(rs.getString("status"));
-                    
-                    // Get order items
-                    List<FoodOrderItem> items = getFoodOrderItems(conn, orderId);
-                    System.out.println("[FoodOrderDAO] Found " + items.size() + " items for order " + orderId);
-                    order.setItems(items);
-                    
-                    orders.add(order);
-                }
-                
-                System.out.println("\n[FoodOrderDAO] Total orders found: " + count);
-                if (count == 0) {
-                    System.out.println("[FoodOrderDAO] No orders found in the database!");
-                }
-            }
+            List<FoodOrder> orders = queryOrdersWithItems(conn,
+                ORDERS_WITH_ITEMS_QUERY + "ORDER BY o.id, i.id");
+            System.out.println("[FoodOrderDAO] Loaded " + orders.size() + " food orders");
+            return orders;
         } catch (SQLException e) {
             System.err.println("[FoodOrderDAO] Error getting all orders: " + e.getMessage());
             e.printStackTrace();
             throw e;
         }
-        return orders;
     }
 
     @Override
     public int save(FoodOrder order) throws SQLException {
+        // Total quantity per food item, in ascending id order so concurrent checkouts lock rows in the same order
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (FoodOrderItem item : order.getItems()) {
+            quantities.merge(item.getFoodItemId(), item.getQuantity(), Integer::sum);
+        }
+        if (quantities.isEmpty()) {
+            throw new SQLException("Cannot place an order without items");
+        }
+        String placeholders = String.join(", ", Collections.nCopies(quantities.size(), "?"));
+
+        Map<Integer, Integer> stock;
         Connection conn = null;
         try {
             conn = DatabaseConnection.getConnection();
             conn.setAutoCommit(false);  // Start transaction
 
+            // Lock all affected food items in one statement and check stock
+            try (PreparedStatement lockStmt = conn.prepareStatement(
+                "SELECT id, stock_quantity FROM food_items WHERE id IN (" + placeholders + ") ORDER BY id FOR UPDATE")) {
+                
+                int index = 1;
+                for (int foodItemId : quantities.keySet()) {
+                    lockStmt.setInt(index++, foodItemId);
+                }
+                stock = new HashMap<>();
+                try (ResultSet rs = lockStmt.executeQuery()) {
+                    while (rs.next()) {
+                        stock.put(rs.getInt("id"), rs.getInt("stock_quantity"));
+                    }
+                }
+                for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                    Integer currentStock = stock.get(entry.getKey());
+                    if (currentStock == null) {
+                        throw new SQLException("Food item not found with ID: " + entry.getKey());
+                    }
+                    if (currentStock < entry.getValue()) {
+                        throw new SQLException("Insufficient stock for food item ID: " + entry.getKey());
+                    }
+                }
+            }
+
             // Calculate total amount
             double totalAmount = order.getItems().stream()
                     .mapToDouble(item -> item.getQuantity() * item.getUnitPrice())
@@ -113,51 +139,45 @@ public class FoodOrderDAO implements DAO<FoodOrder> {
                 }
             }
 
-            // Insert order items and update stock
-            for (FoodOrderItem item : order.getItems()) {
-                // Check stock availability first
-                try (PreparedStatement checkStmt = conn.prepareStatement(
-                    "SELECT stock_quantity FROM food_items WHERE id = ? FOR UPDATE")) {
-                    
-                    checkStmt.setInt(1, item.getFoodItemId());
-                    ResultSet rs = checkStmt.executeQuery();
-                    
-                    if (rs.next()) {
-                        int currentStock = rs.getInt("stock_quantity");
-                        if (currentStock < item.getQuantity()) {
-                            throw new SQLException("Insufficient stock for food item ID: " + item.getFoodItemId());
-                        }
-                    } else {
-                        throw new SQLException("Food item not found with ID: " + item.getFoodItemId());
-                    }
-                }
-
-                // Insert order item
-                try (PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT INTO food_order_items (order_id, food_item_id, quantity, unit_price) VALUES (?, ?, ?, ?)")) {
-                    
+            // Insert all order items as one batch
+            try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO food_order_items (order_id, food_item_id, quantity, unit_price) VALUES (?, ?, ?, ?)")) {
+                
+                for (FoodOrderItem item : order.getItems()) {
                     stmt.setInt(1, order.getId());
                     stmt.setInt(2, item.getFoodItemId());
                     stmt.setInt(3, item.getQuantity());
                     stmt.setDouble(4, item.getUnitPrice());
-                    stmt.executeUpdate();
+                    stmt.addBatch();
                 }
+                stmt.executeBatch();
+            }
 
-                // Update stock quantity
-                try (PreparedStatement stmt = conn.prepareStatement(
-                    "UPDATE food_items SET stock_quantity = stock_quantity - ? WHERE id = ?")) {
-                    
-                    stmt.setInt(1, item.getQuantity());
-                    stmt.setInt(2, item.getFoodItemId());
-                    int rowsAffected = stmt.executeUpdate();
-                    if (rowsAffected == 0) {
-                        throw new SQLException("Failed to update stock for food item ID: " + item.getFoodItemId());
-                    }
+            // Decrement stock for every item in one conditional update
+            String quantityCase = "CASE id" + " WHEN ? THEN ?".repeat(quantities.size()) + " END";
+            try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE food_items SET stock_quantity = stock_quantity - " + quantityCase +
+                " WHERE id IN (" + placeholders + ") AND stock_quantity >= " + quantityCase)) {
+                
+                int index = 1;
+                for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                    stmt.setInt(index++, entry.getKey());
+                    stmt.setInt(index++, entry.getValue());
+                }
+                for (int foodItemId : quantities.keySet()) {
+                    stmt.setInt(index++, foodItemId);
+                }
+                for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                    stmt.setInt(index++, entry.getKey());
+                    stmt.setInt(index++, entry.getValue());
+                }
+                int rowsAffected = stmt.executeUpdate();
+                if (rowsAffected != quantities.size()) {
+                    throw new SQLException("Failed to update stock for order items: " + quantities.keySet());
                 }
             }
 
             conn.commit();  // Commit transaction
-            return order.getId();
         } catch (SQLException e) {
             if (conn != null) {
                 try {
@@ -177,37 +197,268 @@ public class FoodOrderDAO implements DAO<FoodOrder> {
                 }
             }
         }
+
+        // Outside the transaction: the order is committed, so a failing listener must not report it as failed
+        notifyOrderPlaced(order.getId(), quantities, stock);
+        return order.getId();
+    }
+
+    private static void notifyOrderPlaced(int orderId, Map<Integer, Integer> quantities, Map<Integer, Integer> lockedStock) {
+        try {
+            CachedFoodItemDAO.invalidate();  // stock levels changed
+            Map<Integer, Integer> newStock = new HashMap<>();
+            quantities.forEach((foodItemId, quantity) -> newStock.put(foodItemId, lockedStock.get(foodItemId) - quantity));
+            DashboardStatsService.getInstance().orderPlaced(orderId, newStock);
+            OrderSchedulerService.getInstance().orderPlaced(orderId, System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            System.err.println("[FoodOrderDAO] Order " + orderId + " placed, but updating caches failed: " + e.getMessage());
+        }
     }
 
     @Override
     public void update(FoodOrder order) throws SQLException {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "UPDATE food_orders SET status = ? WHERE id = ?")) {
-            
-            stmt.setString(1, order.getStatus());
-            stmt.setInt(2, order.getId());
-            stmt.executeUpdate();
-        }
+        writeStatus(order.getId(), order.getStatus());
+        DashboardStatsService.getInstance().orderStatusChanged(order.getId(), order.getStatus());
     }
 
     @Override
     public void delete(int id) throws SQLException {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("DELETE FROM food_orders WHERE id = ?")) {
-            
-            stmt.setInt(1, id);
-            stmt.executeUpdate();
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);  // Start transaction
+            dailySalesDAO.syncOrder(conn, id, false);
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM food_orders WHERE id = ?")) {
+                stmt.setInt(1, id);
+                stmt.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        DashboardStatsService.getInstance().orderRemoved(id);
+    }
+
+    /**
+     * Sets an order's status and updates the daily sales rollup in the same transaction,
+     * so the rollup counts exactly the completed orders. Returns the number of rows changed.
+     */
+    private int writeStatus(int orderId, String status) throws SQLException {
+        status = FoodOrder.normalizeStatus(status);
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);  // Start transaction
+
+            int rowsAffected;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE food_orders SET status = ? WHERE id = ?")) {
+                stmt.setString(1, status);
+                stmt.setInt(2, orderId);
+                rowsAffected = stmt.executeUpdate();
+            }
+            if (rowsAffected > 0) {
+                dailySalesDAO.syncOrder(conn, orderId, FoodOrder.STATUS_COMPLETED.equals(status));
+            }
+
+            conn.commit();
+            return rowsAffected;
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
         }
     }
 
     public List<FoodOrder> getByUserId(int userId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return queryOrdersWithItems(conn,
+                ORDERS_WITH_ITEMS_QUERY + "WHERE o.user_id = ? ORDER BY o.id, i.id", userId);
+        }
+    }
+
+    /**
+     * Returns one page of orders, newest first, using keyset pagination on (order_time, id).
+     * Pass the last order of the previous page as {@code after}, or null for the first page.
+     * The status and time bounds are optional filters; null means unfiltered.
+     */
+    public List<FoodOrder> getOrdersPage(String status, Timestamp fromTime, Timestamp toTime,
+                                         FoodOrder after, int pageSize) throws SQLException {
+        StringBuilder query = new StringBuilder(
+            "SELECT id, user_id, order_time, status FROM food_orders WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+
+        if (status != null) {
+            query.append(" AND status = ?");
+            params.add(FoodOrder.normalizeStatus(status));
+        }
+        if (fromTime != null) {
+            query.append(" AND order_time >= ?");
+            params.add(fromTime);
+        }
+        if (toTime != null) {
+            query.append(" AND order_time < ?");
+            params.add(toTime);
+        }
+        if (after != null) {
+            query.append(" AND (order_time < ? OR (order_time = ? AND id < ?))");
+            params.add(after.getOrderTime());
+            params.add(after.getOrderTime());
+            params.add(after.getId());
+        }
+        query.append(" ORDER BY order_time DESC, id DESC LIMIT ?");
+        params.add(pageSize);
+
+        List<FoodOrder> orders = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+                for (int i = 0; i < params.size(); i++) {
+                    stmt.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        FoodOrder order = new FoodOrder();
+                        order.setId(rs.getInt("id"));
+                        order.setUserId(rs.getInt("user_id"));
+                        order.setOrderTime(rs.getTimestamp("order_time"));
+                        order.setStatus(rs.getString("status"));
+                        orders.add(order);
+                    }
+                }
+            }
+            attachItems(conn, orders);
+        }
+        return orders;
+    }
+
+    /**
+     * Returns one page of admin order rows, newest first, in a single query. Customer name,
+     * latest payment and the item summary are joined and aggregated in SQL, so the cost does
+     * not depend on how many orders the page holds. Filters are optional; null means unfiltered.
+     * {@code customerSearch} matches usernames containing it, ignoring case.
+     */
+    public List<OrderDisplayItem> getOrderDisplayPage(String status, String paymentMethod, String customerSearch,
+                                                      OrderDisplayItem after, int pageSize) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return getOrderDisplayPage(conn, status, paymentMethod, customerSearch, after, pageSize);
+        }
+    }
+
+    // Runs the page query on a connection the caller owns
+    static List<OrderDisplayItem> getOrderDisplayPage(Connection conn, String status, String paymentMethod, String customerSearch,
+                                                      OrderDisplayItem after, int pageSize) throws SQLException {
+        StringBuilder pageQuery = new StringBuilder(
+            "SELECT o.id, o.user_id, o.status, o.order_time FROM food_orders o WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+
+        if (status != null) {
+            pageQuery.append(" AND o.status = ?");
+            params.add(FoodOrder.normalizeStatus(status));
+        }
+        if (paymentMethod != null) {
+            pageQuery.append(" AND (SELECT p.payment_method FROM payments p WHERE p.payment_id = ")
+                     .append(LATEST_PAYMENT_ID).append(") = ?");
+            params.add(paymentMethod);
+        }
+        if (customerSearch != null) {
+            pageQuery.append(" AND o.user_id IN (SELECT u.id FROM users u WHERE LOWER(u.username) LIKE ?)");
+            params.add("%" + escapeLike(customerSearch.toLowerCase(Locale.ROOT)) + "%");
+        }
+        if (after != null) {
+            pageQuery.append(" AND (o.order_time < ? OR (o.order_time = ? AND o.id < ?))");
+            params.add(after.orderTime);
+            params.add(after.orderTime);
+            params.add(after.orderId);
+        }
+        pageQuery.append(" ORDER BY o.order_time DESC, o.id DESC LIMIT ?");
+        params.add(pageSize);
+
+        String query =
+            "SELECT o.id, o.status, o.order_time, u.username, " +
+            "p.payment_method, p.mobile_number, p.billing_address, " +
+            "GROUP_CONCAT(CONCAT(i.quantity, 'x ', COALESCE(f.name, CONCAT('Item #', i.food_item_id))) " +
+            "ORDER BY i.id SEPARATOR ', ') AS items_summary, " +
+            "COALESCE(SUM(i.quantity * i.unit_price), 0) AS total " +
+            "FROM (" + pageQuery + ") o " +
+            "LEFT JOIN users u ON u.id = o.user_id " +
+            "LEFT JOIN payments p ON p.payment_id = " + LATEST_PAYMENT_ID + " " +
+            "LEFT JOIN food_order_items i ON i.order_id = o.id " +
+            "LEFT JOIN food_items f ON f.id = i.food_item_id " +
+            "GROUP BY o.id, o.status, o.order_time, u.username, p.payment_method, p.mobile_number, p.billing_address " +
+            "ORDER BY o.order_time DESC, o.id DESC";
+
+        List<OrderDisplayItem> rows = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    OrderDisplayItem row = new OrderDisplayItem();
+                    row.orderId = rs.getInt("id");
+                    // The admin orders screen shows and edits statuses in upper case
+                    row.status = rs.getString("status").toUpperCase(Locale.ROOT);
+                    row.orderTime = rs.getTimestamp("order_time");
+                    row.orderDate = row.orderTime.toString();
+                    row.customerName = valueOr(rs.getString("username"), "Unknown");
+                    row.itemsSummary = valueOr(rs.getString("items_summary"), "");
+                    row.totalAmount = rs.getDouble("total");
+                    row.paymentMethod = valueOr(rs.getString("payment_method"), "N/A");
+                    row.contactNumber = valueOr(rs.getString("mobile_number"), "N/A");
+                    row.address = valueOr(rs.getString("billing_address"), "N/A");
+                    row.orderType = OrderDisplayItem.orderTypeFor(row.paymentMethod);
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Makes LIKE treat % and _ in user input literally (backslash is MySQL's default escape)
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static String valueOr(String value, String fallback) {
+        return value == null || value.trim().isEmpty() ? fallback : value;
+    }
+
+    public List<FoodOrder> getPendingOrdersForCancellation() throws SQLException {
         List<FoodOrder> orders = new ArrayList<>();
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT * FROM food_orders WHERE user_id = ?")) {
+                 "SELECT * FROM food_orders WHERE status = 'pending'")) {
             
-            stmt.setInt(1, userId);
             ResultSet rs = stmt.executeQuery();
             
             while (rs.next()) {
@@ -216,21 +467,43 @@ public class FoodOrderDAO implements DAO<FoodOrder> {
                 order.setUserId(rs.getInt("user_id"));
                 order.setOrderTime(rs.getTimestamp("order_time"));
                 order.setStatus(rs.getString("status"));
-                order.setItems(getFoodOrderItems(conn, order.getId()));
                 orders.add(order);
             }
         }
         return orders;
     }
 
-    public List<FoodOrder> getPendingOrdersForCancellation() throws SQLException {
-        List<FoodOrder> orders = new ArrayList<>();
+    /**
+     * Pending orders placed before {@code cutoff}, i.e. already past their deadline.
+     * A range on the (status, order_time) index, so it only touches overdue rows.
+     */
+    public List<FoodOrder> getOverduePendingOrders(Timestamp cutoff) throws SQLException {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT * FROM food_orders WHERE status = 'pending'")) {
-            
-            ResultSet rs = stmt.executeQuery();
-            
+                 "SELECT id, user_id, order_time, status FROM food_orders " +
+                 "WHERE status = 'pending' AND order_time < ?")) {
+            stmt.setTimestamp(1, cutoff);
+            return readOrderHeaders(stmt);
+        }
+    }
+
+    /**
+     * Pending orders with an id above {@code afterId}, oldest first; a primary key range,
+     * so polling it for newly placed orders stays cheap however many orders exist.
+     */
+    public List<FoodOrder> getPendingOrdersAfter(int afterId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT id, user_id, order_time, status FROM food_orders " +
+                 "WHERE id > ? AND status = 'pending' ORDER BY id")) {
+            stmt.setInt(1, afterId);
+            return readOrderHeaders(stmt);
+        }
+    }
+
+    private List<FoodOrder> readOrderHeaders(PreparedStatement stmt) throws SQLException {
+        List<FoodOrder> orders = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 FoodOrder order = new FoodOrder();
                 order.setId(rs.getInt("id"));
@@ -243,75 +516,229 @@ public class FoodOrderDAO implements DAO<FoodOrder> {
         return orders;
     }
 
-    private List<FoodOrderItem> getFoodOrderItems(Connection conn, int orderId) throws SQLException {
-        List<FoodOrderItem> items = new ArrayList<>();
-        String query = "SELECT i.*, f.name as item_name FROM food_order_items i " +
-                      "JOIN food_items f ON i.food_item_id = f.id " +
-                      "WHERE i.order_id = ?";
-                      
-        System.out.println("[FoodOrderDAO] Getting items for order " + orderId);
-        
+    /**
+     * Cancels an order only if it is still pending, so an order completed just before its
+     * deadline is left alone, and puts its items back in stock in the same transaction.
+     * Returns whether it was cancelled.
+     */
+    public boolean cancelIfPending(int orderId) throws SQLException {
+        Map<Integer, Integer> newStock = new HashMap<>();
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);  // Start transaction
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE food_orders SET status = 'cancelled' WHERE id = ? AND status = 'pending'")) {
+                stmt.setInt(1, orderId);
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
+            }
+
+            // Give back what save() took from stock
+            try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE food_items f JOIN (SELECT food_item_id, SUM(quantity) AS quantity " +
+                "FROM food_order_items WHERE order_id = ? GROUP BY food_item_id) i ON i.food_item_id = f.id " +
+                "SET f.stock_quantity = f.stock_quantity + i.quantity")) {
+                stmt.setInt(1, orderId);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT DISTINCT f.id, f.stock_quantity FROM food_items f " +
+                "JOIN food_order_items i ON i.food_item_id = f.id WHERE i.order_id = ?")) {
+                stmt.setInt(1, orderId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        newStock.put(rs.getInt("id"), rs.getInt("stock_quantity"));
+                    }
+                }
+            }
+
+            conn.commit();
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        CachedFoodItemDAO.invalidate();  // stock levels changed
+        DashboardStatsService stats = DashboardStatsService.getInstance();
+        stats.orderStatusChanged(orderId, FoodOrder.STATUS_CANCELLED);
+        newStock.forEach(stats::stockChanged);
+        return true;
+    }
+
+    /**
+     * Runs an orders-with-items query and assembles the order graphs in a single pass.
+     * Rows must be ordered by order id so each order's items arrive contiguously.
+     * The result set is streamed row by row rather than buffered by the driver.
+     */
+    private List<FoodOrder> queryOrdersWithItems(Connection conn, String query, Object... params) throws SQLException {
+        List<FoodOrder> orders = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(query,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                FoodOrder current = null;
+                while (rs.next()) {
+                    int orderId = rs.getInt("id");
+                    if (current == null || current.getId() != orderId) {
+                        current = new FoodOrder();
+                        current.setId(orderId);
+                        current.setUserId(rs.getInt("user_id"));
+                        current.setOrderTime(rs.getTimestamp("order_time"));
+                        current.setStatus(rs.getString("status"));
+                        orders.add(current);
+                    }
+
+                    int itemId = rs.getInt("item_id");
+                    if (!rs.wasNull()) {
+                        current.getItems().add(new FoodOrderItem(
+                            itemId,
+                            orderId,
+                            rs.getInt("food_item_id"),
+                            rs.getString("item_name"),
+                            rs.getInt("quantity"),
+                            rs.getDouble("unit_price")
+                        ));
+                    }
+                }
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Loads the items of all given orders with one {@code IN (...)} query.
+     */
+    private void attachItems(Connection conn, List<FoodOrder> orders) throws SQLException {
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, FoodOrder> ordersById = new HashMap<>();
+        for (FoodOrder order : orders) {
+            ordersById.put(order.getId(), order);
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ordersById.size(), "?"));
+        String query = "SELECT i.id, i.order_id, i.food_item_id, i.quantity, i.unit_price, f.name AS item_name " +
+                       "FROM food_order_items i JOIN food_items f ON i.food_item_id = f.id " +
+                       "WHERE i.order_id IN (" + placeholders + ") ORDER BY i.id";
+
         try (PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setInt(1, orderId);
-            System.out.println("[FoodOrderDAO] Executing query: " + query.replace("?", String.valueOf(orderId)));
-            
+            int index = 1;
+            for (int orderId : ordersById.keySet()) {
+                stmt.setInt(index++, orderId);
+            }
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    FoodOrderItem item = new FoodOrderItem();
-                    item.setId(rs.getInt("id"));
-                    item.setOrderId(rs.getInt("order_id"));
-                    item.setFoodItemId(rs.getInt("food_item_id"));
-                    item.setQuantity(rs.getInt("quantity"));
-                    item.setUnitPrice(rs.getDouble("unit_price"));
-                    item.setFoodItemName(rs.getString("item_name"));
-                    items.add(item);
-                    
-                    System.out.println("[FoodOrderDAO] Found item: " + item.getFoodItemName() + 
-                                     " (Quantity: " + item.getQuantity() + ")");
+                    FoodOrder order = ordersById.get(rs.getInt("order_id"));
+                    order.getItems().add(new FoodOrderItem(
+                        rs.getInt("id"),
+                        order.getId(),
+                        rs.getInt("food_item_id"),
+                        rs.getString("item_name"),
+                        rs.getInt("quantity"),
+                        rs.getDouble("unit_price")
+                    ));
                 }
             }
         }
-        return items;
     }
 
-    public int getPendingOrdersCount() throws SQLException {
+    /**
+     * Ids of all pending orders; used to seed the dashboard's running counters.
+     */
+    public Set<Integer> getPendingOrderIds() throws SQLException {
+        Set<Integer> ids = new HashSet<>();
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT COUNT(*) FROM food_orders WHERE status = 'Pending'")) {
-            
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
+                 "SELECT id FROM food_orders WHERE status = 'pending'");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
             }
         }
-        return 0;
+        return ids;
     }
 
-    public double getTodaySales() throws SQLException {
+    /**
+     * Totals of completed orders placed in [from, to), keyed by order id.
+     */
+    public Map<Integer, Double> getCompletedOrderTotals(Timestamp from, Timestamp to) throws SQLException {
+        Map<Integer, Double> totals = new HashMap<>();
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT SUM(total_amount) FROM food_orders " +
-                 "WHERE DATE(order_time) = CURRENT_DATE AND status = 'completed'")) {
-            
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getDouble(1);
+                 "SELECT id, total_amount FROM food_orders " +
+                 "WHERE status = 'completed' AND order_time >= ? AND order_time < ?")) {
+            stmt.setTimestamp(1, from);
+            stmt.setTimestamp(2, to);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(rs.getInt("id"), rs.getDouble("total_amount"));
+                }
             }
         }
-        return 0.0;
+        return totals;
     }
 
-    public double getAllTimeSales() throws SQLException {
+    /**
+     * Total of one order if it was placed in [from, to), otherwise null.
+     */
+    public Double getOrderTotal(int orderId, Timestamp from, Timestamp to) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT total_amount FROM food_orders WHERE id = ? AND order_time >= ? AND order_time < ?")) {
+            stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, from);
+            stmt.setTimestamp(3, to);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : null;
+            }
+        }
+    }
+
+    public int getPendingOrdersCount() throws SQLException {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT SUM(total_amount) FROM food_orders WHERE status = 'completed'")) {
+                 "SELECT COUNT(*) FROM food_orders WHERE status = 'pending'")) {
             
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                return rs.getDouble(1);
+                return rs.getInt(1);
             }
         }
-        return 0.0;
+        return 0;
+    }
+
+    // Sales totals come from the daily_sales rollup, not a scan of food_orders
+    public double getTodaySales() throws SQLException {
+        LocalDate today = LocalDate.now();
+        return dailySalesDAO.getSalesTotal(today, today.plusDays(1));
+    }
+
+    public double getAllTimeSales() throws SQLException {
+        return dailySalesDAO.getSalesTotal(null, null);
     }
 
     public int getItemOrderCount(int itemId) throws SQLException {
@@ -328,29 +755,68 @@ public class FoodOrderDAO implements DAO<FoodOrder> {
         return 0;
     }
 
-    public void updateOrderStatus(int orderId, String status) throws SQLException {
+    /**
+     * The {@code limit} best-selling items by units sold, aggregated and ranked in one query.
+     */
+    public List<ItemSales> getTopSellingItems(int limit) throws SQLException {
+        List<ItemSales> items = new ArrayList<>();
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "UPDATE food_orders SET status = ? WHERE id = ?")) {
-            
-            stmt.setString(1, status);
-            stmt.setInt(2, orderId);
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new SQLException("Order not found with ID: " + orderId);
+             PreparedStatement stmt = conn.prepareStatement(ITEM_SALES_QUERY + " LIMIT ?")) {
+            stmt.setInt(1, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(readItemSales(rs));
+                }
             }
         }
+        return items;
+    }
+
+    /**
+     * Passes the sales totals of every food item to {@code consumer}, best sellers first.
+     * Rows are streamed from the server one at a time, so memory use does not grow with
+     * the size of the catalog.
+     */
+    public void streamItemSales(Consumer<ItemSales> consumer) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(ITEM_SALES_QUERY,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(readItemSales(rs));
+                }
+            }
+        }
+    }
+
+    private static ItemSales readItemSales(ResultSet rs) throws SQLException {
+        return new ItemSales(
+            rs.getInt("id"),
+            rs.getString("name"),
+            rs.getInt("stock_quantity"),
+            rs.getInt("quantity_sold"),
+            rs.getDouble("revenue")
+        );
+    }
+
+    public void updateOrderStatus(int orderId, String status) throws SQLException {
+        int rowsAffected = writeStatus(orderId, status);
+        if (rowsAffected == 0) {
+            throw new SQLException("Order not found with ID: " + orderId);
+        }
+        DashboardStatsService.getInstance().orderStatusChanged(orderId, status);
     }
 
     // Safe deletion method that handles foreign key constraints
     public boolean safeDeleteOrdersForUser(int userId) throws SQLException {
         Connection conn = null;
+        List<Integer> orderIds = new ArrayList<>();
         try {
             conn = DatabaseConnection.getConnection();
             conn.setAutoCommit(false); // Start transaction
             
             // First, get all orders for this user
-            List<Integer> orderIds = new ArrayList<>();
             try (PreparedStatement stmt = conn.prepareStatement(
                 "SELECT id FROM food_orders WHERE user_id = ?")) {
                 stmt.setInt(1, userId);
@@ -360,6 +826,11 @@ public class FoodOrderDAO implements DAO<FoodOrder> {
                 }
             }
             
+            // Take completed orders out of the sales rollup while their items still exist
+            for (int orderId : orderIds) {
+                dailySalesDAO.syncOrder(conn, orderId, false);
+            }
+
             // Delete order items first (child records)
             for (int orderId : orderIds) {
                 try (PreparedStatement stmt = conn.prepareStatement(
@@ -377,8 +848,6 @@ public class FoodOrderDAO implements DAO<FoodOrder> {
             }
             
             conn.commit();
-            return true;
-            
         } catch (SQLException e) {
             if (conn != null) {
                 try {
@@ -398,6 +867,9 @@ public class FoodOrderDAO implements DAO<FoodOrder> {
                 }
             }
         }
+
+        DashboardStatsService.getInstance().ordersRemoved(orderIds);
+        return true;
     }
 
     // Delete a single order safely
@@ -407,6 +879,9 @@ public class FoodOrderDAO implements DAO<FoodOrder> {
             conn = DatabaseConnection.getConnection();
             conn.setAutoCommit(false); // Start transaction
             
+            // Take the order out of the sales rollup while its items still exist
+            dailySalesDAO.syncOrder(conn, orderId, false);
+
             // First delete order items
             try (PreparedStatement stmt = conn.prepareStatement(
                 "DELETE FROM food_order_items WHERE order_id = ?")) {
@@ -425,8 +900,6 @@ public class FoodOrderDAO implements DAO<FoodOrder> {
             }
             
             conn.commit();
-            return true;
-            
         } catch (SQLException e) {
             if (conn != null) {
                 try {
@@ -446,5 +919,8 @@ public class FoodOrderDAO implements DAO<FoodOrder> {
                 }
             }
         }
+
+        DashboardStatsService.getInstance().orderRemoved(orderId);
+        return true;
     }
 } 
\ No newline at end of file
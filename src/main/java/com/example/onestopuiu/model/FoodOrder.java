@@ -3,8 +3,14 @@ package com.example.onestopuiu.model;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 public class FoodOrder {
+    // Statuses are stored in lower case so they compare with plain, index-friendly equality
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_COMPLETED = "completed";
+    public static final String STATUS_CANCELLED = "cancelled";
+
     private int id;
     private int userId;
     private Timestamp orderTime;
@@ -27,6 +33,13 @@ public class FoodOrder {
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
 
+    /**
+     * Canonical stored form of a status, e.g. "COMPLETED" becomes "completed".
+     */
+    public static String normalizeStatus(String status) {
+        return status == null ? null : status.trim().toLowerCase(Locale.ROOT);
+    }
+
     public List<FoodOrderItem> getItems() { return items; }
     public void setItems(List<FoodOrderItem> items) { this.items = items; }
 
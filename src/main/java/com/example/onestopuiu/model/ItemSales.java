@@ -0,0 +1,30 @@
+package com.example.onestopuiu.model;
+
+/**
+ * Sales totals of one food item across all orders, as aggregated for reports.
+ */
+public class ItemSales {
+    private final int foodItemId;
+    private final String name;
+    private final int stockQuantity;
+    private final int quantitySold;
+    private final double revenue;
+
+    public ItemSales(int foodItemId, String name, int stockQuantity, int quantitySold, double revenue) {
+        this.foodItemId = foodItemId;
+        this.name = name;
+        this.stockQuantity = stockQuantity;
+        this.quantitySold = quantitySold;
+        this.revenue = revenue;
+    }
+
+    public int getFoodItemId() { return foodItemId; }
+
+    public String getName() { return name; }
+
+    public int getStockQuantity() { return stockQuantity; }
+
+    public int getQuantitySold() { return quantitySold; }
+
+    public double getRevenue() { return revenue; }
+}
@@ -0,0 +1,32 @@
+package com.example.onestopuiu.model;
+
+import java.sql.Timestamp;
+
+/**
+ * Flattened order row for the admin orders table: order, customer, payment and item summary.
+ */
+public class OrderDisplayItem {
+    public int orderId;
+    public String customerName;
+    public String itemsSummary;
+    public double totalAmount;
+    public String paymentMethod;
+    public String status;
+    public String orderType;
+    public String contactNumber;
+    public String address;
+    public String orderDate;
+    public Timestamp orderTime;
+
+    public static String orderTypeFor(String paymentMethod) {
+        if (paymentMethod == null || "N/A".equals(paymentMethod)) {
+            return "N/A";
+        } else if ("CASH_ON_DELIVERY".equals(paymentMethod)) {
+            return "🚚 Delivery";
+        } else if ("PICKUP_FROM_CANTEEN".equals(paymentMethod)) {
+            return "🏫 Pickup";
+        } else {
+            return "💳 " + paymentMethod;
+        }
+    }
+}
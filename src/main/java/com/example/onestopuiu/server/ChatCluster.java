@@ -0,0 +1,523 @@
+package com.example.onestopuiu.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets several ChatServer processes act as one chat service. Rooms are spread over the
+ * live nodes with a {@link ConsistentHashRing}; the owner of a room keeps its members,
+ * sequence numbers and history. A client may connect to any node: if its room lives
+ * elsewhere, the node relays the client's lines to the owner over a peer link, and the
+ * owner sends the client's already encoded output back the same way.
+ *
+ * Every node dials every other node's link address and sends a heartbeat each second.
+ * A node not heard from for three seconds is treated as down. A starting node turns
+ * clients away until it has heard from every peer, or for three seconds, so it doesn't
+ * claim rooms a running node already owns. When the set of live nodes changes, the ring
+ * is rebuilt. Rooms and relayed clients whose owner changed are disconnected, and their
+ * clients reconnect and land on the new owner.
+ *
+ * Each node keeps its room logs in its own subdirectory of chat.history.dir, so two
+ * nodes that briefly both own a room never append to the same log. A room that moves
+ * starts a fresh history on its new owner; returning clients are told they were not
+ * resumed.
+ *
+ * A link whose send queue overflows is reset rather than dropping frames. The sessions
+ * relayed over it are closed on both sides and their clients reconnect and resume.
+ */
+public class ChatCluster {
+    private static final long HEARTBEAT_INTERVAL_MS = 1000;
+    private static final long PEER_TIMEOUT_MS = 3000;
+    private static final long RECONNECT_DELAY_MS = 1000;
+    private static final int LINK_QUEUE_LIMIT = 100_000;
+    // Far above any chat line or encoded message; anything larger means a corrupt link
+    private static final int MAX_FRAME_BYTES = 1024 * 1024;
+
+    // Frames on a peer link: [byte op][int session id][int length][payload]
+    private static final byte OP_HELLO = 1;
+    private static final byte OP_HEARTBEAT = 2;
+    private static final byte OP_OPEN = 3;   // relaying node -> owner: "binary|resumeAfter|name::chatId"
+    private static final byte OP_LINE = 4;   // relaying node -> owner: one input line
+    private static final byte OP_LEAVE = 5;  // relaying node -> owner: client went away
+    private static final byte OP_OUT = 6;    // owner -> relaying node: bytes to write to the client
+    private static final byte OP_KICK = 7;   // owner -> relaying node: disconnect the client
+    private static final byte OP_OUT_MESSAGE = 8; // like OP_OUT, but a chat message the relaying node may coalesce
+
+    private final String self;
+    private final Map<String, PeerLink> links = new HashMap<>();
+    private final Map<String, Long> lastHeard = new ConcurrentHashMap<>();
+    private final Runnable onRebalance;
+    private volatile Set<String> liveNodes;
+    private volatile ConsistentHashRing ring;
+    private volatile boolean ready;
+    private long startedAt;
+
+    private final AtomicInteger nextSessionId = new AtomicInteger();
+    // Clients connected here whose room is owned by another node
+    private final Map<Integer, RemoteSession> sessions = new ConcurrentHashMap<>();
+    // Clients of other nodes in rooms owned here, keyed by "node/sessionId"
+    private final Map<String, PeerConnection> peerConnections = new ConcurrentHashMap<>();
+
+    /**
+     * @param self        this node's link address (host:port), which must be one of {@code nodes}
+     * @param nodes       link addresses of all nodes in the cluster
+     * @param onRebalance called after the ring changes, to release rooms owned elsewhere
+     */
+    public ChatCluster(String self, List<String> nodes, Runnable onRebalance) {
+        List<String> trimmed = new ArrayList<>();
+        for (String node : nodes) {
+            if (!node.trim().isEmpty()) {
+                trimmed.add(node.trim());
+            }
+        }
+        self = self != null ? self.trim() : null;
+        if (!trimmed.contains(self)) {
+            throw new IllegalArgumentException("Cluster node list " + trimmed + " does not contain " + self);
+        }
+        for (String node : trimmed) {
+            if (node.lastIndexOf(':') <= 0) {
+                throw new IllegalArgumentException("Cluster node " + node + " is not host:port");
+            }
+        }
+        this.self = self;
+        this.onRebalance = onRebalance;
+        for (String node : trimmed) {
+            if (!node.equals(self)) {
+                links.put(node, new PeerLink(node));
+            }
+        }
+        this.liveNodes = Collections.singleton(self);
+        this.ring = new ConsistentHashRing(liveNodes);
+    }
+
+    public void start() throws IOException {
+        ServerSocket listener = new ServerSocket();
+        listener.bind(parseAddress(self));
+        Thread acceptor = new Thread(() -> acceptLinks(listener), "chat-cluster-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        startedAt = System.currentTimeMillis();
+        ready = links.isEmpty();
+        ChatHistoryLog.useNodeDirectory(self);
+        for (PeerLink link : links.values()) {
+            link.thread.start();
+        }
+
+        ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "chat-cluster-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        monitor.scheduleWithFixedDelay(this::checkMembership, HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        System.out.println("Chat cluster node " + self + " started with peers " + links.keySet());
+    }
+
+    /**
+     * Whether this node knows the membership well enough to own or route rooms. Until then
+     * clients are turned away and reconnect.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean isLocal(String chatId) {
+        return self.equals(ring.ownerOf(chatId));
+    }
+
+    public Set<String> getLiveNodes() {
+        return liveNodes;
+    }
+
+    /**
+     * Relays a client whose room is owned by another node. The owner replies with
+     * NAME_ACCEPTED and history exactly as if the client were connected to it.
+     * Returns null, after closing the client, if the owner can't be reached.
+     */
+    public RemoteSession openRemote(ChatConnection client, String chatId, long resumeAfter) {
+        String owner = ring.ownerOf(chatId);
+        RemoteSession session = new RemoteSession(nextSessionId.incrementAndGet(), client, chatId, owner);
+        sessions.put(session.id, session);
+        String open = (client.isBinary() ? "1" : "0") + "|" + resumeAfter + "|" + client.getUsername() + "::" + chatId;
+        if (!links.get(owner).send(OP_OPEN, session.id, open.getBytes(StandardCharsets.UTF_8))) {
+            // Owner not reachable yet; the client retries after reconnecting
+            sessions.remove(session.id);
+            client.close();
+            return null;
+        }
+        return session;
+    }
+
+    private void checkMembership() {
+        long now = System.currentTimeMillis();
+        Set<String> live = new TreeSet<>();
+        live.add(self);
+        lastHeard.forEach((node, heard) -> {
+            if (now - heard < PEER_TIMEOUT_MS) {
+                live.add(node);
+            }
+        });
+        if (!ready && (live.size() == links.size() + 1 || now - startedAt >= PEER_TIMEOUT_MS)) {
+            // Peers still silent by now are down, so the ring built below is the real one
+            ready = true;
+            System.out.println("Chat cluster node " + self + " ready with live nodes " + live);
+        }
+        if (live.equals(liveNodes)) {
+            return;
+        }
+
+        System.out.println("Chat cluster membership changed: " + liveNodes + " -> " + live);
+        liveNodes = Collections.unmodifiableSet(live);
+        ring = new ConsistentHashRing(live);
+
+        // Relayed clients whose room moved reconnect and get routed to the new owner
+        for (RemoteSession session : new ArrayList<>(sessions.values())) {
+            if (!session.owner.equals(ring.ownerOf(session.chatId))) {
+                session.client.close();
+            }
+        }
+        // Members relayed from nodes that went down are gone
+        for (PeerConnection connection : new ArrayList<>(peerConnections.values())) {
+            if (!live.contains(connection.node)) {
+                connection.detach();
+            }
+        }
+        onRebalance.run();
+    }
+
+    private void acceptLinks(ServerSocket listener) {
+        while (true) {
+            try {
+                Socket socket = listener.accept();
+                Thread reader = new Thread(() -> readLink(socket), "chat-cluster-reader");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                System.out.println("Chat cluster listener failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    // Handles everything one peer sends us over its outbound link
+    private void readLink(Socket socket) {
+        String node = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                byte op = in.readByte();
+                int sessionId = in.readInt();
+                int length = in.readInt();
+                if (length < 0 || length > MAX_FRAME_BYTES) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                if (op == OP_HELLO) {
+                    node = new String(payload, StandardCharsets.UTF_8);
+                    if (!links.containsKey(node)) {
+                        throw new IOException("Unknown cluster node " + node);
+                    }
+                    // A fresh link means the peer dropped whatever it relayed over the old one,
+                    // and may have lost output it owed our relayed clients
+                    dropPeerConnections(node);
+                    dropSessionsTo(node);
+                }
+                if (node == null) {
+                    throw new IOException("Peer link did not start with HELLO");
+                }
+                lastHeard.put(node, System.currentTimeMillis());
+                try {
+                    handleFrame(node, op, sessionId, payload);
+                } catch (RuntimeException e) {
+                    System.out.println("Chat cluster frame " + op + " from " + node + " failed: " + e);
+                }
+            }
+        } catch (EOFException e) {
+            // Peer closed the link
+        } catch (IOException e) {
+            System.out.println("Chat cluster link from " + (node != null ? node : socket.getRemoteSocketAddress())
+                    + " failed: " + e.getMessage());
+        }
+    }
+
+    private void handleFrame(String node, byte op, int sessionId, byte[] payload) {
+        switch (op) {
+            case OP_OPEN: {
+                String[] open = new String(payload, StandardCharsets.UTF_8).split("\\|", 3);
+                String[] parts = open.length == 3 ? ChatServer.parseHandshake(open[2]) : null;
+                long resumeAfter = open.length == 3 ? ChatServer.parseResume(ChatServer.RESUME_PREFIX + open[1]) : -1;
+                if (parts == null || resumeAfter < 0 || !ready || !isLocal(parts[1])) {
+                    // Malformed, or the sender routed with a different ring; it retries once the rings agree
+                    links.get(node).send(OP_KICK, sessionId, new byte[0]);
+                    return;
+                }
+                PeerConnection connection = new PeerConnection(node, sessionId, parts[0], parts[1], "1".equals(open[0]));
+                peerConnections.put(connection.key(), connection);
+                ChatServer.join(connection.chatId, connection, resumeAfter);
+                break;
+            }
+            case OP_LINE: {
+                PeerConnection connection = peerConnections.get(node + "/" + sessionId);
+                if (connection != null) {
+                    ChatServer.handleInput(connection.chatId, connection, new String(payload, StandardCharsets.UTF_8));
+                }
+                break;
+            }
+            case OP_LEAVE: {
+                PeerConnection connection = peerConnections.get(node + "/" + sessionId);
+                if (connection != null) {
+                    connection.detach();
+                }
+                break;
+            }
+            case OP_OUT:
+            case OP_OUT_MESSAGE: {
+                RemoteSession session = sessions.get(sessionId);
+                if (session != null) {
+                    session.client.send(OutboundMessage.preEncoded(payload, op == OP_OUT_MESSAGE));
+                }
+                break;
+            }
+            case OP_KICK: {
+                RemoteSession session = sessions.remove(sessionId);
+                if (session != null) {
+                    session.client.close();
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private void dropPeerConnections(String node) {
+        for (PeerConnection connection : new ArrayList<>(peerConnections.values())) {
+            if (connection.node.equals(node)) {
+                connection.detach();
+            }
+        }
+    }
+
+    // Our outbound link to a peer broke, so nothing we relayed to it will get answers
+    private void dropSessionsTo(String node) {
+        for (RemoteSession session : new ArrayList<>(sessions.values())) {
+            if (session.owner.equals(node)) {
+                session.client.close();
+            }
+        }
+    }
+
+    private static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    /**
+     * A client connected to this node, relayed to the node that owns its room.
+     */
+    public final class RemoteSession {
+        final int id;
+        final ChatConnection client;
+        final String chatId;
+        final String owner;
+
+        RemoteSession(int id, ChatConnection client, String chatId, String owner) {
+            this.id = id;
+            this.client = client;
+            this.chatId = chatId;
+            this.owner = owner;
+        }
+
+        public void forward(String line) {
+            links.get(owner).send(OP_LINE, id, line.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public void close() {
+            if (sessions.remove(id) != null) {
+                links.get(owner).send(OP_LEAVE, id, new byte[0]);
+            }
+        }
+    }
+
+    /**
+     * A member of a room owned here whose socket is on another node.
+     */
+    private final class PeerConnection implements ChatConnection {
+        final String node;
+        final int sessionId;
+        final String name;
+        final String chatId;
+        final boolean binary;
+
+        PeerConnection(String node, int sessionId, String name, String chatId, boolean binary) {
+            this.node = node;
+            this.sessionId = sessionId;
+            this.name = name;
+            this.chatId = chatId;
+            this.binary = binary;
+        }
+
+        String key() {
+            return node + "/" + sessionId;
+        }
+
+        @Override
+        public String getUsername() {
+            return name;
+        }
+
+        @Override
+        public boolean isBinary() {
+            return binary;
+        }
+
+        @Override
+        public void send(OutboundMessage message) {
+            ByteBuffer bytes = message.encoded(binary);
+            byte[] payload = new byte[bytes.remaining()];
+            bytes.get(payload);
+            links.get(node).send(message.isCoalescible() ? OP_OUT_MESSAGE : OP_OUT, sessionId, payload);
+        }
+
+        @Override
+        public void close() {
+            if (peerConnections.remove(key()) != null) {
+                links.get(node).send(OP_KICK, sessionId, new byte[0]);
+                ChatServer.leave(chatId, this);
+            }
+        }
+
+        // The relaying node told us the client is gone
+        void detach() {
+            if (peerConnections.remove(key()) != null) {
+                ChatServer.leave(chatId, this);
+            }
+        }
+    }
+
+    /**
+     * Outbound link to one peer, kept connected by its own thread. Frames queued while
+     * the link is down are dropped; sessions depending on them get closed instead. If the
+     * queue fills up the link is reset the same way, so no session silently misses frames.
+     */
+    private final class PeerLink implements Runnable {
+        final String node;
+        final Thread thread;
+        final BlockingQueue<byte[]> frames = new LinkedBlockingQueue<>(LINK_QUEUE_LIMIT);
+        volatile boolean connected;
+        volatile Socket socket;
+
+        PeerLink(String node) {
+            this.node = node;
+            this.thread = new Thread(this, "chat-cluster-link-" + node);
+            this.thread.setDaemon(true);
+        }
+
+        boolean send(byte op, int sessionId, byte[] payload) {
+            if (!connected) {
+                return false;
+            }
+            ByteBuffer frame = ByteBuffer.allocate(1 + Integer.BYTES + Integer.BYTES + payload.length);
+            frame.put(op).putInt(sessionId).putInt(payload.length).put(payload);
+            if (!frames.offer(frame.array())) {
+                System.out.println("Chat cluster link to " + node + " is backed up; resetting it");
+                reset();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try (Socket socket = new Socket()) {
+                    this.socket = socket;
+                    socket.connect(parseAddress(node), (int) PEER_TIMEOUT_MS);
+                    socket.setTcpNoDelay(true);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    writeFrame(out, OP_HELLO, self.getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    connected = true;
+
+                    while (true) {
+                        byte[] frame = frames.poll(HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                        if (frame == null) {
+                            writeFrame(out, OP_HEARTBEAT, new byte[0]);
+                        } else {
+                            do {
+                                out.write(frame);
+                            } while ((frame = frames.poll()) != null);
+                        }
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    if (connected) {
+                        System.out.println("Chat cluster link to " + node + " lost: " + e.getMessage());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                socket = null;
+                if (connected) {
+                    connected = false;
+                    frames.clear();
+                    // Output for both kinds of session went over this link and may be lost
+                    dropSessionsTo(node);
+                    dropPeerConnections(node);
+                }
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        // Closing the socket fails the writer thread, which cleans up and reconnects
+        void reset() {
+            Socket s = socket;
+            if (s != null) {
+                try {
+                    s.close();
+                } catch (IOException e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+        }
+
+        private void writeFrame(DataOutputStream out, byte op, byte[] payload) throws IOException {
+            out.writeByte(op);
+            out.writeInt(0);
+            out.writeInt(payload.length);
+            out.write(payload);
+        }
+    }
+}
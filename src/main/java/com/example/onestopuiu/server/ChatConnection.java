@@ -0,0 +1,21 @@
+package com.example.onestopuiu.server;
+
+/**
+ * One client connected to a chat room, independent of how its socket is served
+ * (a blocking handler thread or an NIO event loop).
+ */
+public interface ChatConnection {
+    String getUsername();
+
+    /**
+     * Whether the client negotiated binary frames instead of text lines.
+     */
+    boolean isBinary();
+
+    /**
+     * Queues a message for this client without blocking.
+     */
+    void send(OutboundMessage message);
+
+    void close();
+}
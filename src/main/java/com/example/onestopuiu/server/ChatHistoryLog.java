@@ -0,0 +1,207 @@
+package com.example.onestopuiu.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only message log for one chat room, split into segment files of about 1MB.
+ * Each segment is named after the sequence number of its first message, and each record
+ * is [int length][long seq][long timestamp millis][UTF-8 text]. A torn record at the end of the last segment
+ * (from a crash mid-write) is truncated when the log is opened.
+ *
+ * Not thread-safe; {@link ChatRoom} calls it under its own log lock.
+ */
+public class ChatHistoryLog {
+    private static final String DIR_PROPERTY = "chat.history.dir";
+    private static final long SEGMENT_BYTES = 1024 * 1024;
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Long.BYTES;
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // Set in a cluster so each node writes its own logs; see ChatCluster
+    private static volatile String nodeDirectory;
+
+    private final Path directory;
+    private final List<Long> segmentStarts = new ArrayList<>();
+    private FileChannel activeChannel;
+    private long activeSegmentBytes;
+    private long totalBytes;
+    private long nextSeq = 1;
+
+    public ChatHistoryLog(String chatId) throws IOException {
+        Path root = Paths.get(System.getProperty(DIR_PROPERTY, "chat-history"));
+        if (nodeDirectory != null) {
+            root = root.resolve(nodeDirectory);
+        }
+        this.directory = root.resolve(directoryName(chatId));
+        Files.createDirectories(directory);
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                String name = segment.getFileName().toString();
+                segmentStarts.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                totalBytes += Files.size(segment);
+            }
+        }
+        segmentStarts.sort(null);
+        if (!segmentStarts.isEmpty()) {
+            recoverLastSegment();
+        }
+    }
+
+    /**
+     * Keeps the logs of rooms opened from now on under a subdirectory named after
+     * {@code node}, so cluster nodes sharing chat.history.dir never write the same file.
+     */
+    public static void useNodeDirectory(String node) {
+        nodeDirectory = "node-" + node.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    /**
+     * Sequence number the next appended message will get.
+     */
+    public long getNextSeq() {
+        return nextSeq;
+    }
+
+    /**
+     * Total size of all segments in bytes.
+     */
+    public long getSizeBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Appends a message under the sequence number assigned by the room.
+     */
+    public void append(long seq, long timestamp, String message) throws IOException {
+        byte[] text = message.getBytes(StandardCharsets.UTF_8);
+        FileChannel channel = channelForAppend(HEADER_BYTES + text.length);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + text.length);
+        record.putInt(text.length).putLong(seq).putLong(timestamp).put(text).flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        activeSegmentBytes += HEADER_BYTES + text.length;
+        totalBytes += HEADER_BYTES + text.length;
+        nextSeq = seq + 1;
+    }
+
+    /**
+     * Reads messages with fromSeq &lt;= seq &lt; toSeq, oldest first.
+     */
+    public List<HistoryEntry> read(long fromSeq, long toSeq) throws IOException {
+        List<HistoryEntry> entries = new ArrayList<>();
+        for (int i = 0; i < segmentStarts.size() && fromSeq < toSeq; i++) {
+            long start = segmentStarts.get(i);
+            long end = i + 1 < segmentStarts.size() ? segmentStarts.get(i + 1) : nextSeq;
+            if (end <= fromSeq) {
+                continue;
+            }
+            if (start >= toSeq) {
+                break;
+            }
+            scanSegment(segmentPath(start), (seq, timestamp, text) -> {
+                if (seq >= fromSeq && seq < toSeq) {
+                    entries.add(new HistoryEntry(seq, timestamp, text));
+                }
+            });
+        }
+        return entries;
+    }
+
+    /**
+     * Closes the open segment; it is reopened on the next append. Used when a room goes idle
+     * so thousands of quiet rooms don't each hold a file handle.
+     */
+    public void release() {
+        if (activeChannel != null) {
+            try {
+                activeChannel.close();
+            } catch (IOException e) {
+                System.out.println("Error closing chat log: " + e.getMessage());
+            }
+            activeChannel = null;
+        }
+    }
+
+    private FileChannel channelForAppend(int recordBytes) throws IOException {
+        boolean roll = segmentStarts.isEmpty()
+                || (activeSegmentBytes > 0 && activeSegmentBytes + recordBytes > SEGMENT_BYTES);
+        if (roll) {
+            release();
+            segmentStarts.add(nextSeq);
+            activeSegmentBytes = 0;
+        }
+        if (activeChannel == null) {
+            activeChannel = FileChannel.open(segmentPath(segmentStarts.get(segmentStarts.size() - 1)),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return activeChannel;
+    }
+
+    // Finds the next sequence number and cuts off any partially written trailing record
+    private void recoverLastSegment() throws IOException {
+        long start = segmentStarts.get(segmentStarts.size() - 1);
+        Path path = segmentPath(start);
+        long[] lastSeq = {start - 1};
+        long validBytes = scanSegment(path, (seq, timestamp, text) -> lastSeq[0] = seq);
+        if (validBytes < Files.size(path)) {
+            totalBytes -= Files.size(path) - validBytes;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(validBytes);
+            }
+        }
+        nextSeq = lastSeq[0] + 1;
+        activeSegmentBytes = validBytes;
+    }
+
+    // Returns the number of bytes holding complete records
+    private long scanSegment(Path path, RecordVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            long position = 0;
+            long size = channel.size();
+            while (position + HEADER_BYTES <= size) {
+                header.clear();
+                channel.read(header, position);
+                header.flip();
+                int length = header.getInt();
+                long seq = header.getLong();
+                long timestamp = header.getLong();
+                if (length < 0 || position + HEADER_BYTES + length > size) {
+                    break;
+                }
+                ByteBuffer text = ByteBuffer.allocate(length);
+                channel.read(text, position + HEADER_BYTES);
+                visitor.visit(seq, timestamp, new String(text.array(), StandardCharsets.UTF_8));
+                position += HEADER_BYTES + length;
+            }
+            return position;
+        }
+    }
+
+    private Path segmentPath(long firstSeq) {
+        return directory.resolve(String.format("%020d", firstSeq) + SEGMENT_SUFFIX);
+    }
+
+    // Keeps the directory readable while staying unique for ids with characters that get replaced
+    private static String directoryName(String chatId) {
+        return chatId.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + Integer.toHexString(chatId.hashCode());
+    }
+
+    private interface RecordVisitor {
+        void visit(long seq, long timestamp, String text);
+    }
+
+    public record HistoryEntry(long seq, long timestamp, String text) {
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.onestopuiu.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-wide counters for chat traffic, broadcast fan-out latency, outbound queues and
+ * slow consumers. Per-room numbers (members, history size) are read from the rooms
+ * themselves by {@link ChatStatsServer}.
+ */
+public class ChatMetrics {
+    private static final ChatMetrics instance = new ChatMetrics();
+    // Fan-out latency buckets: bucket i counts broadcasts that took less than 2^i microseconds
+    private static final int LATENCY_BUCKETS = 24;
+
+    private final LongAdder messagesIn = new LongAdder();
+    private final LongAdder messagesOut = new LongAdder();
+    private final LongAdder broadcasts = new LongAdder();
+    private final AtomicLongArray fanOutLatency = new AtomicLongArray(LATENCY_BUCKETS);
+
+    private final LongAdder queuedMessages = new LongAdder();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private final LongAdder droppedMessages = new LongAdder();
+    private final LongAdder coalescedMessages = new LongAdder();
+    private final LongAdder slowConsumerDisconnects = new LongAdder();
+    private final LongAdder writeTimeouts = new LongAdder();
+
+    private ChatMetrics() {
+    }
+
+    public static ChatMetrics getInstance() {
+        return instance;
+    }
+
+    void messageReceived() {
+        messagesIn.increment();
+    }
+
+    /**
+     * Records one room broadcast and how long it took to queue it for every member.
+     */
+    void broadcastCompleted(long nanos) {
+        broadcasts.increment();
+        long micros = Math.max(1, nanos / 1000);
+        int bucket = Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        fanOutLatency.incrementAndGet(bucket);
+    }
+
+    void messageQueued(int depth) {
+        messagesOut.increment();
+        queuedMessages.increment();
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    void messagesDequeued(int count) {
+        queuedMessages.add(-count);
+    }
+
+    void messagesDropped(int count) {
+        droppedMessages.add(count);
+    }
+
+    void messagesCoalesced(int count) {
+        coalescedMessages.add(count);
+    }
+
+    void slowConsumerDisconnected() {
+        slowConsumerDisconnects.increment();
+    }
+
+    void writeTimedOut() {
+        writeTimeouts.increment();
+    }
+
+    /**
+     * Chat lines received from clients of rooms owned by this node.
+     */
+    public long getMessagesIn() {
+        return messagesIn.sum();
+    }
+
+    /**
+     * Messages queued for delivery to clients, counting each recipient separately.
+     */
+    public long getMessagesOut() {
+        return messagesOut.sum();
+    }
+
+    public long getBroadcasts() {
+        return broadcasts.sum();
+    }
+
+    /**
+     * Upper bound in microseconds of the fan-out latency below which the given fraction
+     * (e.g. 0.99) of broadcasts completed, or 0 before the first broadcast.
+     */
+    public long getFanOutLatencyMicros(double quantile) {
+        long[] counts = getFanOutLatencyHistogram();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return 1L << i;
+            }
+        }
+        return 1L << (counts.length - 1);
+    }
+
+    /**
+     * Broadcast counts per latency bucket; bucket i holds those under 2^i microseconds.
+     */
+    public long[] getFanOutLatencyHistogram() {
+        long[] counts = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            counts[i] = fanOutLatency.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Messages currently waiting in all outbound queues.
+     */
+    public long getQueuedMessages() {
+        return queuedMessages.sum();
+    }
+
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getDroppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    public long getCoalescedMessages() {
+        return coalescedMessages.sum();
+    }
+
+    public long getSlowConsumerDisconnects() {
+        return slowConsumerDisconnects.sum();
+    }
+
+    public long getWriteTimeouts() {
+        return writeTimeouts.sum();
+    }
+
+    public String getSummary() {
+        return String.format("in=%d, out=%d, fanOutP50=%dus, fanOutP99=%dus, queued=%d, maxQueueDepth=%d, dropped=%d, coalesced=%d, slowDisconnects=%d, writeTimeouts=%d",
+                getMessagesIn(), getMessagesOut(), getFanOutLatencyMicros(0.5), getFanOutLatencyMicros(0.99),
+                getQueuedMessages(), getMaxQueueDepth(), getDroppedMessages(), getCoalescedMessages(),
+                getSlowConsumerDisconnects(), getWriteTimeouts());
+    }
+}
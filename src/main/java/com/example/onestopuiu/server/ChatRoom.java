@@ -0,0 +1,315 @@
+package com.example.onestopuiu.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State of one chat room. Each room has its own lock, which only orders sequence
+ * numbers and enqueueing to members. Members are sent to through their non-blocking
+ * outbound queues, so a slow client or a busy room never holds up another room.
+ *
+ * Recent messages are kept in a fixed-size ring buffer; everything is also appended
+ * to a {@link ChatHistoryLog} on disk, so history survives restarts and older pages
+ * can be read back with the /history command. Appends are queued in order and written
+ * by a history writer thread, so a broadcast (often on the NIO selector thread) never
+ * waits on the disk. Reading the log first writes whatever is still queued.
+ *
+ * The log is opened on first use rather than in the constructor, which runs inside the
+ * server's computeIfAbsent on the rooms map.
+ */
+public class ChatRoom {
+    // Messages kept in memory per room
+    private static final int RING_CAPACITY = 200;
+    // Messages replayed to a client when it joins
+    private static final int JOIN_REPLAY = 50;
+    private static final int MAX_PAGE = RING_CAPACITY;
+
+    private static final ExecutorService HISTORY_WRITER = newHistoryWriter();
+
+    private final String chatId;
+    // Copy-on-write: joins and leaves are rare compared to broadcasts, which iterate without locking
+    private final Set<ChatConnection> members = new CopyOnWriteArraySet<>();
+    private final long[] ringSeqs = new long[RING_CAPACITY];
+    private final long[] ringTimes = new long[RING_CAPACITY];
+    private final String[] ringTexts = new String[RING_CAPACITY];
+    private int ringStart;
+    private int ringSize;
+    private long nextSeq = 1;
+    private boolean loaded;
+    private ChatHistoryLog log;
+    // Guards the log, which is not thread-safe. Taken without the room lock by the writer,
+    // and inside it (never the other way round) by reads
+    private final Object logLock = new Object();
+    private final Queue<ChatHistoryLog.HistoryEntry> pendingAppends = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean appendScheduled = new AtomicBoolean();
+
+    public ChatRoom(String chatId) {
+        this.chatId = chatId;
+    }
+
+    public String getChatId() {
+        return chatId;
+    }
+
+    /**
+     * Adds a member and queues NAME_ACCEPTED plus the most recent messages for it. Done under
+     * the room lock so the new member sees every message exactly once, in order. If older
+     * messages exist, HISTORY_MORE tells the client where to page back from.
+     *
+     * A reconnecting client passes the last sequence number it received and only gets what
+     * it missed (at most the last {@value #RING_CAPACITY} messages), preceded by
+     * "RESUMED &lt;lastSeq&gt;". Returns true if the member was resumed, in which case it
+     * should not be announced again.
+     */
+    public synchronized boolean join(ChatConnection connection, long resumeAfter) {
+        loadHistory();
+        members.add(connection);
+        // A cursor from a different room or a wiped history can't be resumed from. RESUMED
+        // comes before NAME_ACCEPTED, so a client that sees NAME_ACCEPTED without it knows it
+        // was started afresh and must drop its old cursor.
+        boolean resumed = resumeAfter > 0 && resumeAfter < nextSeq;
+        if (resumed) {
+            connection.send(OutboundMessage.control("RESUMED " + resumeAfter));
+        }
+        connection.send(OutboundMessage.control("NAME_ACCEPTED"));
+
+        long fromSeq = resumed
+                ? Math.max(resumeAfter + 1, nextSeq - RING_CAPACITY)
+                : Math.max(1, nextSeq - JOIN_REPLAY);
+        long firstSent = replayFrom(connection, fromSeq);
+        if (firstSent > 1 && (!resumed || firstSent > resumeAfter + 1)) {
+            connection.send(OutboundMessage.control("HISTORY_MORE " + firstSent));
+        }
+        return resumed;
+    }
+
+    // Sends every message from fromSeq on as MESSAGE lines; returns the first sequence number sent
+    private long replayFrom(ChatConnection connection, long fromSeq) {
+        long firstSent = nextSeq;
+        if (ringSize == 0 || fromSeq >= ringSeqs[ringIndex(0)]) {
+            for (int i = 0; i < ringSize; i++) {
+                int slot = ringIndex(i);
+                if (ringSeqs[slot] >= fromSeq) {
+                    connection.send(OutboundMessage.message(ringSeqs[slot], ringTimes[slot], ringTexts[slot]));
+                    firstSent = Math.min(firstSent, ringSeqs[slot]);
+                }
+            }
+        } else if (log != null) {
+            try {
+                for (ChatHistoryLog.HistoryEntry entry : readLog(fromSeq, nextSeq)) {
+                    connection.send(OutboundMessage.message(entry.seq(), entry.timestamp(), entry.text()));
+                    firstSent = Math.min(firstSent, entry.seq());
+                }
+            } catch (IOException e) {
+                System.out.println("Failed to read chat history for " + chatId + ": " + e.getMessage());
+            }
+        }
+        return firstSent;
+    }
+
+    public synchronized void leave(ChatConnection connection) {
+        members.remove(connection);
+        if (members.isEmpty() && log != null) {
+            HISTORY_WRITER.execute(this::releaseLog);
+        }
+    }
+
+    /**
+     * Records a message and queues it for every member. All members get room messages
+     * in the same order because numbering and enqueues happen together, and they all share
+     * one OutboundMessage, so the message is encoded once per wire format, not per member.
+     * The message is written to the log afterwards by the history writer.
+     */
+    public synchronized void broadcast(String message) {
+        long started = System.nanoTime();
+        loadHistory();
+        long seq = nextSeq++;
+        long timestamp = System.currentTimeMillis();
+        if (log != null) {
+            pendingAppends.add(new ChatHistoryLog.HistoryEntry(seq, timestamp, message));
+            if (appendScheduled.compareAndSet(false, true)) {
+                HISTORY_WRITER.execute(this::writePendingAppends);
+            }
+        }
+        remember(seq, timestamp, message);
+
+        OutboundMessage outbound = OutboundMessage.message(seq, timestamp, message);
+        for (ChatConnection member : members) {
+            member.send(outbound);
+        }
+        ChatMetrics.getInstance().broadcastCompleted(System.nanoTime() - started);
+    }
+
+    /**
+     * Sends up to {@code count} messages older than {@code beforeSeq} as HISTORY lines,
+     * oldest first, followed by HISTORY_MORE with the next cursor or HISTORY_END.
+     */
+    public synchronized void sendHistory(ChatConnection connection, long beforeSeq, int count) {
+        loadHistory();
+        beforeSeq = Math.min(beforeSeq, nextSeq);
+        long fromSeq = Math.max(1, beforeSeq - Math.max(1, Math.min(count, MAX_PAGE)));
+        long firstSent = beforeSeq;
+
+        if (ringSize > 0 && fromSeq >= ringSeqs[ringIndex(0)]) {
+            for (int i = 0; i < ringSize; i++) {
+                int slot = ringIndex(i);
+                long seq = ringSeqs[slot];
+                if (seq >= fromSeq && seq < beforeSeq) {
+                    connection.send(OutboundMessage.history(seq, ringTimes[slot], ringTexts[slot]));
+                    firstSent = Math.min(firstSent, seq);
+                }
+            }
+        } else if (log != null) {
+            try {
+                for (ChatHistoryLog.HistoryEntry entry : readLog(fromSeq, beforeSeq)) {
+                    connection.send(OutboundMessage.history(entry.seq(), entry.timestamp(), entry.text()));
+                    firstSent = Math.min(firstSent, entry.seq());
+                }
+            } catch (IOException e) {
+                System.out.println("Failed to read chat history for " + chatId + ": " + e.getMessage());
+            }
+        }
+
+        connection.send(OutboundMessage.control(
+                firstSent > 1 && firstSent < beforeSeq ? "HISTORY_MORE " + firstSent : "HISTORY_END"));
+    }
+
+    /**
+     * Disconnects every member and releases the log, when the room moves to another node.
+     */
+    public void closeAll() {
+        List<ChatConnection> current;
+        synchronized (this) {
+            current = new ArrayList<>(members);
+            members.clear();
+            if (log != null) {
+                HISTORY_WRITER.execute(this::releaseLog);
+            }
+        }
+        for (ChatConnection member : current) {
+            member.close();
+        }
+    }
+
+    public int getMemberCount() {
+        return members.size();
+    }
+
+    /**
+     * Number of messages ever sent in this room, i.e. the length of its history.
+     */
+    public synchronized long getHistorySize() {
+        loadHistory();
+        return nextSeq - 1;
+    }
+
+    /**
+     * Bytes of history on disk, or 0 if the room is not persisted. Messages still queued
+     * for the writer are not counted yet.
+     */
+    public synchronized long getHistoryBytes() {
+        if (log == null) {
+            return 0;
+        }
+        synchronized (logLock) {
+            return log.getSizeBytes();
+        }
+    }
+
+    /**
+     * Writes every queued message to the log before returning, e.g. on shutdown.
+     */
+    public void flushHistory() {
+        synchronized (logLock) {
+            writeQueuedAppends();
+        }
+    }
+
+    // Opens the log and fills the ring from it; runs once, under the room lock
+    private void loadHistory() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try {
+            ChatHistoryLog opened = new ChatHistoryLog(chatId);
+            nextSeq = opened.getNextSeq();
+            for (ChatHistoryLog.HistoryEntry entry : opened.read(Math.max(1, nextSeq - RING_CAPACITY), nextSeq)) {
+                remember(entry.seq(), entry.timestamp(), entry.text());
+            }
+            log = opened;
+        } catch (IOException e) {
+            System.out.println("Chat history for " + chatId + " will not be persisted: " + e.getMessage());
+        }
+    }
+
+    // Runs on the history writer
+    private void writePendingAppends() {
+        // Clear the flag first so a message queued during the write schedules another run
+        appendScheduled.set(false);
+        flushHistory();
+    }
+
+    // Runs on the history writer, so queued appends are written before the handle closes
+    private void releaseLog() {
+        synchronized (logLock) {
+            writeQueuedAppends();
+            log.release();
+        }
+    }
+
+    // Reads a range from disk; the caller holds the room lock, so nothing new is queued meanwhile
+    private List<ChatHistoryLog.HistoryEntry> readLog(long fromSeq, long toSeq) throws IOException {
+        synchronized (logLock) {
+            writeQueuedAppends();
+            return log.read(fromSeq, toSeq);
+        }
+    }
+
+    // Caller holds logLock
+    private void writeQueuedAppends() {
+        ChatHistoryLog.HistoryEntry entry;
+        while ((entry = pendingAppends.poll()) != null) {
+            try {
+                log.append(entry.seq(), entry.timestamp(), entry.text());
+            } catch (IOException e) {
+                System.out.println("Failed to persist chat message for " + chatId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static ExecutorService newHistoryWriter() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "chat-history-writer-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private void remember(long seq, long timestamp, String text) {
+        int slot;
+        if (ringSize < RING_CAPACITY) {
+            slot = ringIndex(ringSize++);
+        } else {
+            slot = ringStart;
+            ringStart = (ringStart + 1) % RING_CAPACITY;
+        }
+        ringSeqs[slot] = seq;
+        ringTimes[slot] = timestamp;
+        ringTexts[slot] = text;
+    }
+
+    private int ringIndex(int offset) {
+        return (ringStart + offset) % RING_CAPACITY;
+    }
+}
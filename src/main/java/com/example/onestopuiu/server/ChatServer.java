@@ -1,120 +1,420 @@
 package com.example.onestopuiu.server;
 
+import com.example.onestopuiu.util.VirtualThreads;
+
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Chat server for customer/seller conversations.
+ * Run with the argument (or -Dchat.server.mode=) "nio" to serve all connections from a
+ * few selector event loops instead of one thread per socket; both modes speak the same
+ * line protocol, so ChatController works with either. The "virtual" mode keeps the simple
+ * thread-per-connection handlers but runs them on a virtual-thread-per-task executor when the
+ * runtime is Java 21 or newer.
+ *
+ * Joining clients get the last messages of the room; if there are older ones the server
+ * sends "HISTORY_MORE &lt;seq&gt;", and the client can send "/history &lt;seq&gt; [count]" to
+ * receive "HISTORY &lt;seq&gt; &lt;text&gt;" lines followed by HISTORY_MORE or HISTORY_END.
+ *
+ * Each client has a bounded outbound queue (-Dchat.outbound.maxMessages, default 1000).
+ * When it fills up, -Dchat.slowConsumer.policy picks drop-oldest, coalesce (default) or
+ * disconnect, and a write that makes no progress for -Dchat.writeTimeoutMillis
+ * (default 30s) disconnects the client.
+ *
+ * A client may send "PROTOCOL binary" before its handshake. The server answers
+ * "PROTOCOL_ACCEPTED binary" and from then on sends length-prefixed frames instead of
+ * lines (see {@link OutboundMessage}); what the client sends stays line based.
+ * A reconnecting client may also send "RESUME &lt;lastSeq&gt;" before its handshake to get
+ * only the messages it missed, without a new "has joined" announcement. The server then
+ * sends "RESUMED &lt;lastSeq&gt;" before NAME_ACCEPTED; without it the join started afresh
+ * (e.g. the room's history was reset) and the client's old cursor no longer applies.
+ *
+ * Several servers can share the rooms: start each with its own -Dchat.port, the link
+ * addresses of all nodes in -Dchat.cluster.nodes (comma separated host:port) and its own
+ * link address in -Dchat.cluster.self. See {@link ChatCluster}.
+ *
+ * Traffic, fan-out latency and queue statistics are served on a local HTTP endpoint and
+ * logged periodically; see {@link ChatStatsServer}.
+ */
 public class ChatServer {
-    private static final int PORT = 5000;
-
+    private static final int PORT = Integer.getInteger("chat.port", 5000);
+    private static final String HISTORY_COMMAND = "/history ";
+    private static final int HISTORY_PAGE_SIZE = 50;
+    static final String BINARY_PROTOCOL_REQUEST = "PROTOCOL binary";
+    static final String BINARY_PROTOCOL_ACCEPTED = "PROTOCOL_ACCEPTED binary";
+    static final String RESUME_PREFIX = "RESUME ";
 
-    private static final Map<String, Set<PrintWriter>> chatWriters = new HashMap<>();
+    static final int OUTBOUND_LIMIT = Integer.getInteger("chat.outbound.maxMessages", 1000);
+    static final SlowConsumerPolicy SLOW_CONSUMER_POLICY =
+            SlowConsumerPolicy.fromProperty(System.getProperty("chat.slowConsumer.policy"));
+    static final long WRITE_TIMEOUT_MS = Long.getLong("chat.writeTimeoutMillis", 30_000L);
 
-    private static final Map<String, List<String>> chatHistories = new HashMap<>();
+    // Runs every client's reader and writer; a cached platform pool, or one virtual thread per task
+    private static ExecutorService clientExecutor;
 
-    private static final Map<Socket, String> socketChatIdMap = new HashMap<>();
+    private static final Map<String, ChatRoom> rooms = new ConcurrentHashMap<>();
 
-    private static final Map<Socket, PrintWriter> socketWriterMap = new HashMap<>();
+    // Only set when running as part of a cluster
+    private static ChatCluster cluster;
+    // Clients connected here whose room is owned by another node
+    private static final Map<ChatConnection, ChatCluster.RemoteSession> remoteSessions = new ConcurrentHashMap<>();
 
     public static void main(String[] args) {
-        System.out.println("OneStopUIU Chat Server is running...");
+        String clusterNodes = System.getProperty("chat.cluster.nodes");
+        if (clusterNodes != null) {
+            try {
+                cluster = new ChatCluster(System.getProperty("chat.cluster.self"),
+                        Arrays.asList(clusterNodes.split(",")), ChatServer::releaseRoomsOwnedElsewhere);
+                cluster.start();
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println("Could not join the chat cluster: " + e.getMessage());
+                return;
+            }
+        }
+
+        new ChatStatsServer().start();
+        // Rooms write their history behind the broadcast; keep what is still queued when stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(
+                () -> rooms.values().forEach(ChatRoom::flushHistory), "chat-history-flush"));
+
+        String mode = args.length > 0 ? args[0] : System.getProperty("chat.server.mode", "threaded");
+        if ("nio".equalsIgnoreCase(mode)) {
+            int eventLoops = Math.max(2, Runtime.getRuntime().availableProcessors());
+            System.out.println("OneStopUIU Chat Server is running (NIO, " + eventLoops + " event loops)...");
+            try {
+                new NioChatServer(PORT, eventLoops).run();
+            } catch (IOException e) {
+                System.out.println("Error in the server: " + e.getMessage());
+            }
+            return;
+        }
+
+        boolean virtualThreads = "virtual".equalsIgnoreCase(mode) && VirtualThreads.isSupported();
+        if ("virtual".equalsIgnoreCase(mode) && !virtualThreads) {
+            System.out.println("Virtual threads need Java 21; falling back to platform threads");
+        }
+        clientExecutor = virtualThreads ? VirtualThreads.newPerTaskExecutor() : newClientThreadPool();
+        System.out.println("OneStopUIU Chat Server is running" + (virtualThreads ? " (virtual threads)..." : "..."));
+        startWriteWatchdog();
         try (ServerSocket listener = new ServerSocket(PORT)) {
             while (true) {
-                new ClientHandler(listener.accept()).start();
+                clientExecutor.execute(new ClientHandler(listener.accept()));
             }
         } catch (IOException e) {
             System.out.println("Error in the server: " + e.getMessage());
         }
     }
 
-    private static class ClientHandler extends Thread {
+    private static ExecutorService newClientThreadPool() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "chat-client-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Blocking writes can't time out on their own; closing the socket unblocks a stuck writer
+    private static void startWriteWatchdog() {
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "chat-write-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        watchdog.scheduleWithFixedDelay(() -> {
+            long now = System.currentTimeMillis();
+            for (ClientHandler handler : ClientHandler.handlers) {
+                long started = handler.writeStartedAt;
+                if (started > 0 && now - started > WRITE_TIMEOUT_MS) {
+                    ChatMetrics.getInstance().writeTimedOut();
+                    System.out.println("Disconnecting " + handler.name + ": write blocked for " + (now - started) + "ms");
+                    handler.closeSocket();
+                }
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Notice that replaces a coalesced backlog, encoded for the client's wire format.
+     */
+    static ByteBuffer skippedNotice(int count, boolean binary) {
+        return OutboundMessage.message(0, System.currentTimeMillis(),
+                "System: " + count + " messages were skipped because your connection is too slow").encoded(binary);
+    }
+
+    static void disconnectSlowConsumer(ChatConnection connection) {
+        ChatMetrics.getInstance().slowConsumerDisconnected();
+        System.out.println("Disconnecting slow consumer " + connection.getUsername()
+                + ": more than " + OUTBOUND_LIMIT + " messages queued");
+    }
+
+    /**
+     * Parses a {@code name::chatId} handshake line, or returns null if it is malformed.
+     */
+    static String[] parseHandshake(String line) {
+        if (line == null || !line.contains("::")) {
+            return null;
+        }
+        return line.split("::", 2);
+    }
+
+    /**
+     * Parses a "RESUME &lt;lastSeq&gt;" line, or returns -1 if the line is something else.
+     */
+    static long parseResume(String line) {
+        if (line == null || !line.startsWith(RESUME_PREFIX)) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(line.substring(RESUME_PREFIX.length()).trim()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static Collection<ChatRoom> getRooms() {
+        return rooms.values();
+    }
+
+    static int getRemoteSessionCount() {
+        return remoteSessions.size();
+    }
+
+    // Constructing a room is cheap; its history is read on first use, outside the map's compute
+    static ChatRoom room(String chatId) {
+        return rooms.computeIfAbsent(chatId, ChatRoom::new);
+    }
+
+    /**
+     * Adds a connection to a room, then sends it NAME_ACCEPTED and the room history
+     * and announces it to the other members. A client resuming after {@code resumeAfter} > 0
+     * only gets the messages after that sequence number and is not announced again.
+     * In a cluster, rooms owned by another node are joined through that node instead.
+     */
+    static void join(String chatId, ChatConnection connection, long resumeAfter) {
+        if (cluster != null && !cluster.isReady()) {
+            // Still learning which nodes are up; the client reconnects once rooms can be placed
+            connection.close();
+            return;
+        }
+        if (cluster != null && !cluster.isLocal(chatId)) {
+            ChatCluster.RemoteSession session = cluster.openRemote(connection, chatId, resumeAfter);
+            if (session != null) {
+                remoteSessions.put(connection, session);
+            }
+            return;
+        }
+        ChatRoom room = room(chatId);
+        if (!room.join(connection, resumeAfter)) {
+            room.broadcast("System: " + connection.getUsername() + " has joined the chat");
+        }
+    }
+
+    static void leave(String chatId, ChatConnection connection) {
+        ChatCluster.RemoteSession session = remoteSessions.remove(connection);
+        if (session != null) {
+            session.close();
+            return;
+        }
+        ChatRoom room = rooms.get(chatId);
+        if (room != null) {
+            room.leave(connection);
+        }
+    }
+
+    static void broadcastMessage(String chatId, String message) {
+        // A missing room was handed to another node; its members are being disconnected
+        ChatRoom room = rooms.get(chatId);
+        if (room != null) {
+            room.broadcast(message);
+        }
+    }
+
+    /**
+     * Called after the cluster membership changed: rooms this node no longer owns are
+     * closed so their members reconnect to the new owner.
+     */
+    static void releaseRoomsOwnedElsewhere() {
+        for (String chatId : new ArrayList<>(rooms.keySet())) {
+            if (!cluster.isLocal(chatId)) {
+                ChatRoom room = rooms.remove(chatId);
+                if (room != null) {
+                    System.out.println("Handing chat room " + chatId + " over to another node");
+                    room.closeAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles one line from a joined client: "/history &lt;beforeSeq&gt; [count]" pages back
+     * through the room history, anything else is a chat message.
+     */
+    static void handleInput(String chatId, ChatConnection connection, String input) {
+        ChatCluster.RemoteSession session = remoteSessions.get(connection);
+        if (session != null) {
+            session.forward(input);
+            return;
+        }
+        ChatMetrics.getInstance().messageReceived();
+        if (input.startsWith(HISTORY_COMMAND)) {
+            String[] args = input.substring(HISTORY_COMMAND.length()).trim().split("\\s+");
+            try {
+                long beforeSeq = Long.parseLong(args[0]);
+                int count = args.length > 1 ? Integer.parseInt(args[1]) : HISTORY_PAGE_SIZE;
+                ChatRoom room = rooms.get(chatId);
+                if (room != null) {
+                    room.sendHistory(connection, beforeSeq, count);
+                }
+                return;
+            } catch (NumberFormatException e) {
+                // Not a well-formed command; treat it as an ordinary message
+            }
+        }
+        broadcastMessage(chatId, connection.getUsername() + ": " + input);
+    }
+
+    /**
+     * Thread-per-connection handler, run on the client executor. Reading happens in this task;
+     * everything sent to the client goes through an outbound queue drained by a separate writer
+     * task, so a broadcast never blocks on this client's socket.
+     */
+    private static class ClientHandler implements Runnable, ChatConnection {
+        static final Set<ClientHandler> handlers = ConcurrentHashMap.newKeySet();
+
         private Socket socket;
-        private PrintWriter out;
+        private OutputStream out;
         private BufferedReader in;
         private String name;
         private String chatId;
+        private volatile boolean binary;
+        // Messages are encoded when queued, so the format switch after negotiation is ordered with them
+        private final OutboundQueue<ByteBuffer> outbound =
+                new OutboundQueue<>(OUTBOUND_LIMIT, SLOW_CONSUMER_POLICY, count -> skippedNotice(count, binary));
+        private volatile boolean closed;
+        // Set while a batch is being written, so the watchdog can spot a stuck socket
+        private volatile long writeStartedAt;
 
         public ClientHandler(Socket socket) {
             this.socket = socket;
         }
 
+        @Override
         public void run() {
+            handlers.add(this);
             try {
                 in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                out = new PrintWriter(socket.getOutputStream(), true);
-
+                out = new BufferedOutputStream(socket.getOutputStream());
+                clientExecutor.execute(this::drainOutbound);
 
-                String nameAndChatId = in.readLine();
-                if (nameAndChatId == null || !nameAndChatId.contains("::")) {
-                    out.println("NAME_TAKEN");
+                String handshake = in.readLine();
+                if (BINARY_PROTOCOL_REQUEST.equals(handshake)) {
+                    send(OutboundMessage.control(BINARY_PROTOCOL_ACCEPTED));
+                    binary = true;
+                    handshake = in.readLine();
+                }
+                long resumeAfter = parseResume(handshake);
+                if (resumeAfter >= 0) {
+                    handshake = in.readLine();
+                }
+                String[] parts = parseHandshake(handshake);
+                if (parts == null) {
+                    send(OutboundMessage.control("NAME_TAKEN"));
                     return;
                 }
-                String[] parts = nameAndChatId.split("::", 2);
                 name = parts[0];
                 chatId = parts[1];
 
-
-                synchronized (chatWriters) {
-                    chatWriters.putIfAbsent(chatId, new HashSet<>());
-                    chatWriters.get(chatId).add(out);
-                }
-                synchronized (chatHistories) {
-                    chatHistories.putIfAbsent(chatId, new ArrayList<>());
-                }
-                socketChatIdMap.put(socket, chatId);
-                socketWriterMap.put(socket, out);
-
-                out.println("NAME_ACCEPTED");
-
-
-                synchronized (chatHistories) {
-                    for (String msg : chatHistories.get(chatId)) {
-                        out.println("MESSAGE " + msg);
-                    }
-                }
-
-                broadcastMessage(chatId, "System: " + name + " has joined the chat");
+                ChatServer.join(chatId, this, Math.max(0, resumeAfter));
 
                 String input;
                 while ((input = in.readLine()) != null) {
-                    broadcastMessage(chatId, name + ": " + input);
+                    handleInput(chatId, this, input);
                 }
             } catch (IOException e) {
                 System.out.println(e.getMessage());
             } finally {
 
-                if (out != null && chatId != null) {
-                    synchronized (chatWriters) {
-                        Set<PrintWriter> writers = chatWriters.get(chatId);
-                        if (writers != null) {
-                            writers.remove(out);
-                        }
-                    }
+                if (chatId != null) {
+                    leave(chatId, this);
                 }
-                socketChatIdMap.remove(socket);
-                socketWriterMap.remove(socket);
-                try {
-                    socket.close();
-                } catch (IOException e) {
-                    System.out.println(e.getMessage());
+                handlers.remove(this);
+                close();
+            }
+        }
+
+        // Writes everything queued, flushing once per batch, and closes the socket when the queue is closed
+        private void drainOutbound() {
+            WritableByteChannel sink = Channels.newChannel(out);
+            try {
+                ByteBuffer buffer;
+                while ((buffer = outbound.take()) != null) {
+                    writeStartedAt = System.currentTimeMillis();
+                    do {
+                        while (buffer.hasRemaining()) {
+                            sink.write(buffer);
+                        }
+                    } while ((buffer = outbound.poll()) != null);
+                    out.flush();
+                    writeStartedAt = 0;
                 }
+            } catch (IOException e) {
+                // Client went away; the reader task cleans up
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                outbound.discard();
+                closeSocket();
             }
         }
 
-        private void broadcastMessage(String chatId, String message) {
+        @Override
+        public String getUsername() {
+            return name;
+        }
+
+        @Override
+        public boolean isBinary() {
+            return binary;
+        }
 
-            synchronized (chatHistories) {
-                chatHistories.get(chatId).add(message);
+        @Override
+        public void send(OutboundMessage message) {
+            if (!closed && !outbound.offer(message.encoded(binary), message.isCoalescible())) {
+                disconnectSlowConsumer(this);
+                closeSocket();
             }
+        }
 
-            synchronized (chatWriters) {
-                Set<PrintWriter> writers = chatWriters.get(chatId);
-                if (writers != null) {
-                    for (PrintWriter writer : writers) {
-                        writer.println("MESSAGE " + message);
-                    }
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                if (out == null) {
+                    closeSocket();
+                } else {
+                    outbound.close();
                 }
             }
         }
+
+        private void closeSocket() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        }
     }
-}
\ No newline at end of file
+}
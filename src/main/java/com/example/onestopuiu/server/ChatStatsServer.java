@@ -0,0 +1,170 @@
+package com.example.onestopuiu.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admin view of the chat server: a small HTTP endpoint on the loopback interface
+ * (GET /stats returns JSON) and a summary line written to the log periodically.
+ *
+ * The port comes from -Dchat.stats.port (default 5080, 0 turns the endpoint off) and
+ * the log interval from -Dchat.stats.logSeconds (default 60, 0 turns it off).
+ * Rates are per second, averaged over the time since the previous sample.
+ */
+public class ChatStatsServer {
+    private static final int STATS_PORT = Integer.getInteger("chat.stats.port", 5080);
+    private static final int LOG_SECONDS = Integer.getInteger("chat.stats.logSeconds", 60);
+    // Rooms listed individually in the JSON; the busiest ones by member count
+    private static final int MAX_ROOMS_LISTED = 100;
+
+    private final ChatMetrics metrics = ChatMetrics.getInstance();
+    private final Object rateLock = new Object();
+    private long lastSampleNanos = System.nanoTime();
+    private long lastIn;
+    private long lastOut;
+    private double inPerSecond;
+    private double outPerSecond;
+
+    public void start() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "chat-stats");
+            t.setDaemon(true);
+            return t;
+        });
+        // Sample rates every few seconds so the endpoint shows recent traffic, not a lifetime average
+        scheduler.scheduleAtFixedRate(this::sampleRates, 5, 5, TimeUnit.SECONDS);
+        if (LOG_SECONDS > 0) {
+            scheduler.scheduleAtFixedRate(() -> System.out.println("[ChatStats] " + getSummary()),
+                    LOG_SECONDS, LOG_SECONDS, TimeUnit.SECONDS);
+        }
+
+        if (STATS_PORT > 0) {
+            try {
+                HttpServer server = HttpServer.create(
+                        new InetSocketAddress(InetAddress.getLoopbackAddress(), STATS_PORT), 0);
+                server.createContext("/stats", this::handleStats);
+                server.setExecutor(scheduler);
+                server.start();
+                System.out.println("[ChatStats] Stats endpoint at http://localhost:" + STATS_PORT + "/stats");
+            } catch (IOException e) {
+                System.out.println("[ChatStats] Could not start the stats endpoint: " + e.getMessage());
+            }
+        }
+    }
+
+    private void sampleRates() {
+        synchronized (rateLock) {
+            long now = System.nanoTime();
+            double seconds = (now - lastSampleNanos) / 1e9;
+            if (seconds <= 0) {
+                return;
+            }
+            long in = metrics.getMessagesIn();
+            long out = metrics.getMessagesOut();
+            inPerSecond = (in - lastIn) / seconds;
+            outPerSecond = (out - lastOut) / seconds;
+            lastIn = in;
+            lastOut = out;
+            lastSampleNanos = now;
+        }
+    }
+
+    public String getSummary() {
+        List<ChatRoom> rooms = new ArrayList<>(ChatServer.getRooms());
+        long members = 0;
+        long history = 0;
+        for (ChatRoom room : rooms) {
+            members += room.getMemberCount();
+            history += room.getHistorySize();
+        }
+        synchronized (rateLock) {
+            return String.format("rooms=%d, members=%d, remoteSessions=%d, in/s=%.1f, out/s=%.1f, historyMessages=%d, %s",
+                    rooms.size(), members, ChatServer.getRemoteSessionCount(), inPerSecond, outPerSecond,
+                    history, metrics.getSummary());
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = toJson().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private String toJson() {
+        List<ChatRoom> rooms = new ArrayList<>(ChatServer.getRooms());
+        rooms.sort(Comparator.comparingInt(ChatRoom::getMemberCount).reversed());
+
+        StringBuilder json = new StringBuilder(256 + rooms.size() * 96);
+        json.append('{');
+        synchronized (rateLock) {
+            json.append("\"messagesInPerSecond\":").append(String.format("%.2f", inPerSecond));
+            json.append(",\"messagesOutPerSecond\":").append(String.format("%.2f", outPerSecond));
+        }
+        json.append(",\"messagesIn\":").append(metrics.getMessagesIn());
+        json.append(",\"messagesOut\":").append(metrics.getMessagesOut());
+        json.append(",\"broadcasts\":").append(metrics.getBroadcasts());
+        json.append(",\"fanOutLatencyMicros\":{\"p50\":").append(metrics.getFanOutLatencyMicros(0.5))
+                .append(",\"p90\":").append(metrics.getFanOutLatencyMicros(0.9))
+                .append(",\"p99\":").append(metrics.getFanOutLatencyMicros(0.99))
+                .append(",\"histogram\":[");
+        long[] histogram = metrics.getFanOutLatencyHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            json.append(i > 0 ? "," : "").append(histogram[i]);
+        }
+        json.append("]}");
+        json.append(",\"queuedMessages\":").append(metrics.getQueuedMessages());
+        json.append(",\"maxQueueDepth\":").append(metrics.getMaxQueueDepth());
+        json.append(",\"droppedMessages\":").append(metrics.getDroppedMessages());
+        json.append(",\"coalescedMessages\":").append(metrics.getCoalescedMessages());
+        json.append(",\"slowConsumerDisconnects\":").append(metrics.getSlowConsumerDisconnects());
+        json.append(",\"writeTimeouts\":").append(metrics.getWriteTimeouts());
+        json.append(",\"remoteSessions\":").append(ChatServer.getRemoteSessionCount());
+        json.append(",\"roomCount\":").append(rooms.size());
+        json.append(",\"rooms\":[");
+        for (int i = 0; i < rooms.size() && i < MAX_ROOMS_LISTED; i++) {
+            ChatRoom room = rooms.get(i);
+            json.append(i > 0 ? "," : "")
+                    .append("{\"chatId\":\"").append(escape(room.getChatId())).append('"')
+                    .append(",\"members\":").append(room.getMemberCount())
+                    .append(",\"historyMessages\":").append(room.getHistorySize())
+                    .append(",\"historyBytes\":").append(room.getHistoryBytes())
+                    .append('}');
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
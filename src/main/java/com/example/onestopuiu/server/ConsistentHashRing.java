@@ -0,0 +1,64 @@
+package com.example.onestopuiu.server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring mapping chat rooms to cluster nodes. Each node is placed at
+ * several virtual points so rooms spread evenly. When a node joins or leaves, only the
+ * rooms next to its points change owner.
+ * Immutable; build a new ring when the set of live nodes changes.
+ */
+public final class ConsistentHashRing {
+    private static final int VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, String> points = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<String> nodes) {
+        for (String node : nodes) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                points.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * Node that owns the given key, or null if the ring is empty.
+     */
+    public String ownerOf(String key) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        SortedMap<Long, String> tail = points.tailMap(hash(key));
+        return tail.isEmpty() ? points.firstEntry().getValue() : tail.get(tail.firstKey());
+    }
+
+    public boolean isEmpty() {
+        return points.isEmpty();
+    }
+
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                h = (h << 8) | (digest[i] & 0xff);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        Map<String, Integer> counts = new TreeMap<>();
+        points.values().forEach(node -> counts.merge(node, 1, Integer::sum));
+        return "ConsistentHashRing" + counts.keySet();
+    }
+}
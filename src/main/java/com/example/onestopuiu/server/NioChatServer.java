@@ -0,0 +1,371 @@
+package com.example.onestopuiu.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking chat server: one thread accepts sockets and hands them round-robin to a
+ * fixed set of selector event loops. Each connection has its own read buffer, splits
+ * input into lines, and keeps an outbound queue that only its event loop writes from.
+ * Outbound queues are bounded (see {@link OutboundQueue}), and each loop disconnects
+ * clients whose pending output has made no progress within the write timeout.
+ */
+public class NioChatServer {
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    // A client sending a longer line than this without a newline is disconnected
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+    private static final long SWEEP_INTERVAL_MS = 1000;
+    // Queued messages handed to one gathering write
+    private static final int WRITE_BATCH = 64;
+
+    private final int port;
+    private final EventLoop[] eventLoops;
+
+    public NioChatServer(int port, int eventLoopCount) throws IOException {
+        this.port = port;
+        this.eventLoops = new EventLoop[eventLoopCount];
+        for (int i = 0; i < eventLoopCount; i++) {
+            eventLoops[i] = new EventLoop(i);
+        }
+    }
+
+    /**
+     * Starts the event loops and accepts connections on the calling thread until it fails.
+     */
+    public void run() throws IOException {
+        for (EventLoop loop : eventLoops) {
+            loop.thread.start();
+        }
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port));
+            int next = 0;
+            while (true) {
+                SocketChannel channel = server.accept();
+                channel.configureBlocking(false);
+                eventLoops[next].register(channel);
+                next = (next + 1) % eventLoops.length;
+            }
+        }
+    }
+
+    private static final class EventLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        final Queue<SocketChannel> pendingRegistrations = new ConcurrentLinkedQueue<>();
+        final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+        final Queue<NioConnection> pendingCloses = new ConcurrentLinkedQueue<>();
+        long lastSweep = System.currentTimeMillis();
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "chat-event-loop-" + index);
+        }
+
+        void register(SocketChannel channel) {
+            pendingRegistrations.add(channel);
+            selector.wakeup();
+        }
+
+        // Called by other threads after queueing output for a connection on this loop
+        void scheduleWrite(NioConnection connection) {
+            pendingWrites.add(connection);
+            selector.wakeup();
+        }
+
+        // Called by other threads that closed a connection; only this loop touches its key and channel
+        void scheduleClose(NioConnection connection) {
+            pendingCloses.add(connection);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select(SWEEP_INTERVAL_MS);
+                    registerPending();
+                    releaseClosed();
+                    flushPending();
+                    sweepStalledWrites();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        NioConnection connection = (NioConnection) key.attachment();
+                        try {
+                            if (!key.isValid()) {
+                                connection.close();
+                                continue;
+                            }
+                            if (key.isReadable()) {
+                                connection.onReadable();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                        } catch (RuntimeException e) {
+                            // One bad connection must not take down every other client on this loop
+                            System.out.println("Error handling chat connection " + connection.name + ": " + e);
+                            connection.close();
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.out.println("Error in chat event loop: " + e);
+                }
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pendingRegistrations.poll()) != null) {
+                try {
+                    NioConnection connection = new NioConnection(this, channel);
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (ClosedChannelException e) {
+                    // Client went away before it was registered
+                }
+            }
+        }
+
+        private void sweepStalledWrites() {
+            long now = System.currentTimeMillis();
+            if (now - lastSweep < SWEEP_INTERVAL_MS) {
+                return;
+            }
+            lastSweep = now;
+            for (SelectionKey key : selector.keys()) {
+                NioConnection connection = (NioConnection) key.attachment();
+                if (connection.stalledSince > 0 && now - connection.stalledSince > ChatServer.WRITE_TIMEOUT_MS) {
+                    ChatMetrics.getInstance().writeTimedOut();
+                    System.out.println("Disconnecting " + connection.name + ": no write progress for "
+                            + (now - connection.stalledSince) + "ms");
+                    connection.close();
+                }
+            }
+        }
+
+        private void releaseClosed() {
+            NioConnection connection;
+            while ((connection = pendingCloses.poll()) != null) {
+                connection.release();
+            }
+        }
+
+        private void flushPending() {
+            NioConnection connection;
+            while ((connection = pendingWrites.poll()) != null) {
+                try {
+                    connection.flush();
+                } catch (RuntimeException e) {
+                    System.out.println("Error writing to chat connection " + connection.name + ": " + e);
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    private static final class NioConnection implements ChatConnection {
+        final EventLoop loop;
+        final SocketChannel channel;
+        final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+        volatile boolean binary;
+        final OutboundQueue<ByteBuffer> outbound = new OutboundQueue<>(ChatServer.OUTBOUND_LIMIT,
+                ChatServer.SLOW_CONSUMER_POLICY, count -> ChatServer.skippedNotice(count, binary));
+        final AtomicBoolean writeScheduled = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        SelectionKey key;
+        String name;
+        String chatId;
+        long resumeAfter;
+        boolean closeAfterFlush;
+        // Only touched on the event loop: the batch being written (buffers batchStart..batchEnd
+        // still have bytes left) and when the socket last accepted any of it
+        final ByteBuffer[] batch = new ByteBuffer[WRITE_BATCH];
+        int batchStart;
+        int batchEnd;
+        long stalledSince;
+
+        NioConnection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+        }
+
+        @Override
+        public String getUsername() {
+            return name;
+        }
+
+        @Override
+        public boolean isBinary() {
+            return binary;
+        }
+
+        @Override
+        public void send(OutboundMessage message) {
+            if (closed.get()) {
+                return;
+            }
+            // Broadcasts share one encoding; each member only gets its own buffer position
+            if (!outbound.offer(message.encoded(binary), message.isCoalescible())) {
+                ChatServer.disconnectSlowConsumer(this);
+                close();
+                return;
+            }
+            if (Thread.currentThread() == loop.thread) {
+                flush();
+            } else if (writeScheduled.compareAndSet(false, true)) {
+                loop.scheduleWrite(this);
+            }
+        }
+
+        void onReadable() {
+            int read;
+            try {
+                read = channel.read(readBuffer);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (read < 0) {
+                close();
+                return;
+            }
+
+            readBuffer.flip();
+            while (readBuffer.hasRemaining() && !closed.get()) {
+                byte b = readBuffer.get();
+                if (b == '\n') {
+                    handleLine(takeLine());
+                } else if (partialLine.size() >= MAX_LINE_BYTES) {
+                    close();
+                } else {
+                    partialLine.write(b);
+                }
+            }
+            readBuffer.clear();
+        }
+
+        private String takeLine() {
+            String line = partialLine.toString(StandardCharsets.UTF_8);
+            partialLine.reset();
+            return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+        }
+
+        private void handleLine(String line) {
+            if (chatId != null) {
+                ChatServer.handleInput(chatId, this, line);
+                return;
+            }
+
+            if (!binary && ChatServer.BINARY_PROTOCOL_REQUEST.equals(line)) {
+                send(OutboundMessage.control(ChatServer.BINARY_PROTOCOL_ACCEPTED));
+                binary = true;
+                return;
+            }
+            long resume = ChatServer.parseResume(line);
+            if (resume >= 0) {
+                resumeAfter = resume;
+                return;
+            }
+            String[] parts = ChatServer.parseHandshake(line);
+            if (parts == null) {
+                closeAfterFlush = true;
+                send(OutboundMessage.control("NAME_TAKEN"));
+                return;
+            }
+            name = parts[0];
+            chatId = parts[1];
+            ChatServer.join(chatId, this, resumeAfter);
+        }
+
+        // Runs on the event loop; writes as much as the socket accepts and waits for OP_WRITE for the rest
+        void flush() {
+            writeScheduled.set(false);
+            if (closed.get()) {
+                return;
+            }
+            try {
+                while (true) {
+                    if (batchStart == batchEnd && !fillBatch()) {
+                        break;
+                    }
+                    long written = channel.write(batch, batchStart, batchEnd - batchStart);
+                    while (batchStart < batchEnd && !batch[batchStart].hasRemaining()) {
+                        batch[batchStart++] = null;
+                    }
+                    if (batchStart < batchEnd) {
+                        if (written > 0 || stalledSince == 0) {
+                            stalledSince = System.currentTimeMillis();
+                        }
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                }
+                stalledSince = 0;
+                key.interestOps(SelectionKey.OP_READ);
+                if (closeAfterFlush) {
+                    close();
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private boolean fillBatch() {
+            batchStart = 0;
+            batchEnd = 0;
+            ByteBuffer next;
+            while (batchEnd < WRITE_BATCH && (next = outbound.poll()) != null) {
+                batch[batchEnd++] = next;
+            }
+            return batchEnd > 0;
+        }
+
+        /**
+         * Closes from any thread. The key and channel are only released on the event loop,
+         * so a close from another thread can't cancel the key under a flush in progress.
+         */
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            outbound.discard();
+            if (chatId != null) {
+                ChatServer.leave(chatId, this);
+            }
+            if (Thread.currentThread() == loop.thread) {
+                release();
+            } else {
+                loop.scheduleClose(this);
+            }
+        }
+
+        // Runs on the event loop
+        void release() {
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+}
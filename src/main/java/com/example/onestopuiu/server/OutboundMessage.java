@@ -0,0 +1,118 @@
+package com.example.onestopuiu.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One server-to-client message, in whichever wire format the client negotiated.
+ * Both encodings are produced at most once and then shared: a broadcast creates a
+ * single OutboundMessage and every member writes a duplicate of the same bytes.
+ *
+ * Text clients get a protocol line ("MESSAGE ...", "HISTORY seq ...", or a control
+ * line such as "NAME_ACCEPTED"). Binary clients get a frame:
+ * [int payload length][byte type][long id][long timestamp millis][UTF-8 text].
+ */
+public final class OutboundMessage {
+    public static final byte TYPE_CONTROL = 0;
+    public static final byte TYPE_MESSAGE = 1;
+    public static final byte TYPE_HISTORY = 2;
+
+    private static final int FRAME_HEADER_BYTES = 1 + Long.BYTES + Long.BYTES;
+
+    private final byte type;
+    private final long id;
+    private final long timestamp;
+    private final String text;
+    // Lazily encoded; a race just encodes the same bytes twice
+    private volatile ByteBuffer lineBytes;
+    private volatile ByteBuffer frameBytes;
+
+    private OutboundMessage(byte type, long id, long timestamp, String text) {
+        this.type = type;
+        this.id = id;
+        this.timestamp = timestamp;
+        this.text = text;
+    }
+
+    /**
+     * A protocol line that is not a chat message, e.g. NAME_ACCEPTED or HISTORY_END.
+     */
+    public static OutboundMessage control(String line) {
+        return new OutboundMessage(TYPE_CONTROL, 0, System.currentTimeMillis(), line);
+    }
+
+    /**
+     * A live chat message; {@code seq} is its position in the room history, or 0 for notices.
+     */
+    public static OutboundMessage message(long seq, long timestamp, String text) {
+        return new OutboundMessage(TYPE_MESSAGE, seq, timestamp, text);
+    }
+
+    /**
+     * An older message sent in reply to a /history request.
+     */
+    public static OutboundMessage history(long seq, long timestamp, String text) {
+        return new OutboundMessage(TYPE_HISTORY, seq, timestamp, text);
+    }
+
+    /**
+     * Bytes that were already encoded for the client elsewhere, e.g. by the node owning
+     * its room; they are written as they are whatever the format. {@code chatMessage} says
+     * whether they hold a live chat message, see {@link #isCoalescible()}.
+     */
+    public static OutboundMessage preEncoded(byte[] bytes, boolean chatMessage) {
+        OutboundMessage message = new OutboundMessage(chatMessage ? TYPE_MESSAGE : TYPE_CONTROL, 0, 0, null);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        message.lineBytes = buffer;
+        message.frameBytes = buffer;
+        return message;
+    }
+
+    /**
+     * Whether this is a live chat message, which a slow client may have folded into a
+     * "messages skipped" notice; protocol replies and history pages must all arrive.
+     */
+    public boolean isCoalescible() {
+        return type == TYPE_MESSAGE;
+    }
+
+    public String toLine() {
+        switch (type) {
+            case TYPE_MESSAGE:
+                return "MESSAGE " + text;
+            case TYPE_HISTORY:
+                return "HISTORY " + id + " " + text;
+            default:
+                return text;
+        }
+    }
+
+    /**
+     * Bytes to write for a text or binary client. The returned buffer is a private
+     * view of the shared encoding, so callers may consume it freely.
+     */
+    public ByteBuffer encoded(boolean binary) {
+        return binary ? frame().duplicate() : line().duplicate();
+    }
+
+    private ByteBuffer line() {
+        ByteBuffer bytes = lineBytes;
+        if (bytes == null) {
+            bytes = ByteBuffer.wrap((toLine() + "\n").getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+            lineBytes = bytes;
+        }
+        return bytes;
+    }
+
+    private ByteBuffer frame() {
+        ByteBuffer bytes = frameBytes;
+        if (bytes == null) {
+            byte[] body = text.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + FRAME_HEADER_BYTES + body.length);
+            buffer.putInt(FRAME_HEADER_BYTES + body.length).put(type).putLong(id).putLong(timestamp).put(body).flip();
+            bytes = buffer.asReadOnlyBuffer();
+            frameBytes = bytes;
+        }
+        return bytes;
+    }
+}
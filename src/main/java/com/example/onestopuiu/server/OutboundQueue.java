@@ -0,0 +1,158 @@
+package com.example.onestopuiu.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Bounded queue of messages waiting to be written to one client. Offering never blocks:
+ * when the queue is full, the {@link SlowConsumerPolicy} decides whether the oldest message
+ * is dropped, the backlog is replaced by a "messages skipped" notice, or the client must
+ * be disconnected.
+ *
+ * Only items offered as coalescible (live chat messages) are folded into the notice;
+ * protocol replies and history pages keep their place, since the client depends on them.
+ */
+public class OutboundQueue<T> {
+    private final ArrayDeque<Entry<T>> items = new ArrayDeque<>();
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final IntFunction<T> skippedNotice;
+    private final ChatMetrics metrics = ChatMetrics.getInstance();
+    // The coalesced notice currently queued and how many messages it stands for
+    private T pendingNotice;
+    private int skipped;
+    private boolean closed;
+
+    public OutboundQueue(int capacity, SlowConsumerPolicy policy, IntFunction<T> skippedNotice) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.skippedNotice = skippedNotice;
+    }
+
+    /**
+     * Queues a chat message that COALESCE may fold into a skipped notice; see {@link #offer(Object, boolean)}.
+     */
+    public boolean offer(T item) {
+        return offer(item, true);
+    }
+
+    /**
+     * Queues a message. Items that are not {@code coalescible} are never replaced by the
+     * skipped notice. Returns false if the client must be disconnected: the queue is full and
+     * the policy is DISCONNECT, or it is full of items COALESCE may not fold.
+     */
+    public synchronized boolean offer(T item, boolean coalescible) {
+        if (closed) {
+            return true;
+        }
+        if (items.size() >= capacity) {
+            switch (policy) {
+                case DROP_OLDEST:
+                    items.pollFirst();
+                    metrics.messagesDequeued(1);
+                    metrics.messagesDropped(1);
+                    break;
+                case COALESCE:
+                    if (coalesce(0) == 0) {
+                        // Only protocol lines and the notice are queued; a chat message is skipped too
+                        if (!coalescible || pendingNotice == null) {
+                            return false;
+                        }
+                        coalesce(1);
+                        return true;
+                    }
+                    break;
+                case DISCONNECT:
+                    return false;
+            }
+        }
+        items.addLast(new Entry<>(item, coalescible));
+        metrics.messageQueued(items.size());
+        notifyAll();
+        return true;
+    }
+
+    // Replaces the queued chat messages, plus `unqueued` ones never added, with one notice
+    // where the first of them was; the remaining items keep their order. Returns how many
+    // messages were folded, or 0 if there was nothing to fold.
+    private int coalesce(int unqueued) {
+        List<Entry<T>> kept = new ArrayList<>(items.size());
+        int noticeIndex = -1;
+        int backlog = unqueued;
+        for (Entry<T> entry : items) {
+            if (entry.coalescible() || entry.item() == pendingNotice) {
+                if (noticeIndex < 0) {
+                    noticeIndex = kept.size();
+                }
+                if (entry.item() != pendingNotice) {
+                    backlog++;
+                }
+            } else {
+                kept.add(entry);
+            }
+        }
+        if (backlog == 0 || noticeIndex < 0) {
+            return 0;
+        }
+        skipped += backlog;
+        metrics.messagesDequeued(items.size() - kept.size());
+        metrics.messagesCoalesced(backlog);
+        pendingNotice = skippedNotice.apply(skipped);
+        kept.add(noticeIndex, new Entry<>(pendingNotice, false));
+        items.clear();
+        items.addAll(kept);
+        metrics.messageQueued(items.size());
+        return backlog;
+    }
+
+    public synchronized T poll() {
+        Entry<T> entry = items.pollFirst();
+        if (entry == null) {
+            return null;
+        }
+        metrics.messagesDequeued(1);
+        if (entry.item() == pendingNotice) {
+            pendingNotice = null;
+            skipped = 0;
+        }
+        return entry.item();
+    }
+
+    /**
+     * Waits for the next message. Returns null once the queue is closed and drained.
+     */
+    public synchronized T take() throws InterruptedException {
+        while (items.isEmpty() && !closed) {
+            wait();
+        }
+        return poll();
+    }
+
+    /**
+     * Stops accepting messages; already queued ones can still be taken.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Closes the queue and throws away whatever is left, for a connection that is gone.
+     */
+    public synchronized void discard() {
+        closed = true;
+        metrics.messagesDequeued(items.size());
+        items.clear();
+        pendingNotice = null;
+        notifyAll();
+    }
+
+    public synchronized int size() {
+        return items.size();
+    }
+
+    private record Entry<T>(T item, boolean coalescible) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.onestopuiu.server;
+
+/**
+ * What to do when a client's outbound queue is full because it reads slower than its rooms talk.
+ */
+public enum SlowConsumerPolicy {
+    /** Discard the oldest queued message to make room for the new one. */
+    DROP_OLDEST,
+    /** Replace the queued chat messages with one notice saying how many were skipped; protocol lines stay. */
+    COALESCE,
+    /** Disconnect the client; it can reconnect and page back through history. */
+    DISCONNECT;
+
+    public static SlowConsumerPolicy fromProperty(String value) {
+        if (value == null) {
+            return COALESCE;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown slow consumer policy '" + value + "', using COALESCE");
+            return COALESCE;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.example.onestopuiu.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small bounded JDBC connection pool used by {@link DatabaseConnection}.
+ * Borrowed connections are handed out as proxies, so calling {@code close()}
+ * (e.g. from try-with-resources in the DAOs) returns the physical connection
+ * to the pool instead of closing the socket.
+ * On return, statements the borrower left open are closed, an open transaction is
+ * rolled back, and MySQL named locks taken with GET_LOCK through a prepared statement
+ * are released, so none of them outlive the borrow on an idle pooled session.
+ */
+public class ConnectionPool {
+    // Connections used within this window are trusted without a validation ping
+    private static final long VALIDATION_SKIP_WINDOW_MS = 500;
+    private static final long HOUSEKEEPING_INTERVAL_MS = 30_000;
+    // Closed statements are pruned from a lease's list once it grows past this
+    private static final int STATEMENT_PRUNE_THRESHOLD = 64;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long connectionTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final long leakThresholdMs;
+    private final int validationTimeoutSeconds;
+
+    // Most recently returned connections sit at the head, so stale ones drift to the tail
+    private final BlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<Lease> activeLeases = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    private volatile boolean shutdown;
+
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long connectionTimeoutMs, long idleTimeoutMs, long maxLifetimeMs,
+                          long leakThresholdMs, int validationTimeoutSeconds) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_INTERVAL_MS, HOUSEKEEPING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the connection timeout if the pool is exhausted.
+     */
+    public Connection borrow() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + connectionTimeoutMs
+                        + "ms waiting for a database connection (" + getStatsSummary() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idleConnections.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    break;
+                }
+                discard(pooled);
+            }
+            if (pooled == null) {
+                pooled = createConnection();
+            }
+
+            recordWait(System.nanoTime() - waitStart);
+            Lease lease = new Lease(pooled);
+            activeLeases.add(lease);
+            return lease.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.currentTimeMillis();
+        if (now - pooled.createdAt >= maxLifetimeMs) {
+            return false;
+        }
+        if (now - pooled.lastUsedAt < VALIDATION_SKIP_WINDOW_MS) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(Lease lease) {
+        if (!activeLeases.remove(lease)) {
+            return;
+        }
+
+        PooledConnection pooled = lease.pooled;
+        try {
+            lease.closeStatements();
+            boolean reusable = !shutdown
+                    && System.currentTimeMillis() - pooled.createdAt < maxLifetimeMs
+                    && !pooled.physical.isClosed();
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                // Never hand an open transaction to the next borrower
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (reusable && lease.tookNamedLock) {
+                // Named locks belong to the session, not the borrow; a missed RELEASE_LOCK would stay held
+                try (Statement stmt = pooled.physical.createStatement()) {
+                    stmt.execute("SELECT RELEASE_ALL_LOCKS()");
+                }
+            }
+            if (reusable) {
+                pooled.lastUsedAt = System.currentTimeMillis();
+                idleConnections.offerFirst(pooled);
+            } else {
+                discard(pooled);
+            }
+        } catch (SQLException e) {
+            System.err.println("[ConnectionPool] Discarding connection after failed reset: " + e.getMessage());
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        evictedCount.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            System.err.println("[ConnectionPool] Error closing connection: " + e.getMessage());
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            // Idle eviction and max-lifetime retirement
+            Iterator<PooledConnection> it = idleConnections.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                boolean idleTooLong = now - pooled.lastUsedAt >= idleTimeoutMs;
+                boolean tooOld = now - pooled.createdAt >= maxLifetimeMs;
+                if ((idleTooLong || tooOld) && idleConnections.removeFirstOccurrence(pooled)) {
+                    discard(pooled);
+                }
+            }
+
+            // Leak detection: report each long-held lease once, with where it was borrowed
+            for (Lease lease : activeLeases) {
+                if (!lease.leakReported && now - lease.borrowedAt >= leakThresholdMs) {
+                    lease.leakReported = true;
+                    leakCount.incrementAndGet();
+                    System.err.println("[ConnectionPool] Possible connection leak: held for "
+                            + (now - lease.borrowedAt) + "ms by thread '" + lease.borrowerThread + "'");
+                    lease.borrowTrace.printStackTrace();
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[ConnectionPool] Housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeper. Borrowed connections
+     * are closed as they are returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    public int getActiveCount() {
+        return activeLeases.size();
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getWaitingThreads() {
+        return permits.getQueueLength();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.get();
+        return borrows == 0 ? 0.0 : totalWaitNanos.get() / (borrows * 1_000_000.0);
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public String getStatsSummary() {
+        return String.format("active=%d, idle=%d, max=%d, waiting=%d, borrows=%d, avgWait=%.2fms, maxWait=%.2fms, "
+                        + "created=%d, evicted=%d, leaks=%d, timeouts=%d",
+                getActiveCount(), getIdleCount(), maxSize, getWaitingThreads(), getBorrowCount(),
+                getAverageWaitMillis(), getMaxWaitMillis(), getCreatedCount(), getEvictedCount(),
+                getLeakCount(), getTimeoutCount());
+    }
+
+    private static final class PooledConnection {
+        final Connection physical;
+        final long createdAt;
+        volatile long lastUsedAt;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection. Each borrow gets its own proxy so a stale
+     * handle closed twice cannot return a connection someone else is now using.
+     */
+    private final class Lease implements InvocationHandler {
+        final PooledConnection pooled;
+        final Connection proxy;
+        final long borrowedAt = System.currentTimeMillis();
+        final String borrowerThread = Thread.currentThread().getName();
+        final Throwable borrowTrace = new Throwable("Connection borrowed here");
+        // Statements created through this borrow; closed when it is returned
+        final List<Statement> statements = new ArrayList<>();
+        volatile boolean closed;
+        volatile boolean leakReported;
+        volatile boolean tookNamedLock;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String sql
+                    && sql.toUpperCase(Locale.ROOT).contains("GET_LOCK")) {
+                tookNamedLock = true;
+            }
+            Object result;
+            try {
+                result = method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement statement) {
+                track(statement);
+            }
+            return result;
+        }
+
+        private synchronized void track(Statement statement) throws SQLException {
+            if (statements.size() >= STATEMENT_PRUNE_THRESHOLD) {
+                Iterator<Statement> it = statements.iterator();
+                while (it.hasNext()) {
+                    if (it.next().isClosed()) {
+                        it.remove();
+                    }
+                }
+            }
+            statements.add(statement);
+        }
+
+        synchronized void closeStatements() {
+            for (Statement statement : statements) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    System.err.println("[ConnectionPool] Error closing statement: " + e.getMessage());
+                }
+            }
+            statements.clear();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.onestopuiu.util;
+
+import com.example.onestopuiu.dao.FoodItemDAO;
+import com.example.onestopuiu.dao.FoodOrderDAO;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Running dashboard counters: pending orders, today's completed sales and low-stock items.
+ * They are seeded from the database, then kept current from order and stock change events
+ * reported by the DAOs in this process. Orders placed from customers' clients only reach
+ * the database, so the counters are also reloaded every {@value #RECONCILE_SECONDS}
+ * seconds, as often as the dashboard used to refresh; with the (status, order_time)
+ * index that is three small indexed reads.
+ *
+ * All work happens on one background thread, so events apply in the order they were
+ * reported and never block the caller. Listeners are called on that thread, only when a
+ * counter actually changed; UI listeners should hand the update to the FX thread.
+ */
+public class DashboardStatsService {
+    private static final Logger LOGGER = Logger.getLogger(DashboardStatsService.class.getName());
+    public static final int LOW_STOCK_THRESHOLD = 5;
+    private static final long RECONCILE_SECONDS = 30;
+    // Retry delay while the counters have never loaded, so a dashboard isn't left blank
+    private static final long LOAD_RETRY_SECONDS = 5;
+
+    private static DashboardStatsService instance;
+
+    /**
+     * Snapshot of the counters shown on the dashboard.
+     */
+    public record Stats(int pendingOrders, double todaySales, int lowStockItems) {
+    }
+
+    private final FoodOrderDAO foodOrderDAO;
+    private final FoodItemDAO foodItemDAO;
+    private final ScheduledExecutorService executor;
+    private final List<Consumer<Stats>> listeners = new CopyOnWriteArrayList<>();
+
+    // Only touched on the executor thread
+    private final Set<Integer> pendingOrderIds = new HashSet<>();
+    private final Map<Integer, Double> completedTodayTotals = new HashMap<>();
+    private final Set<Integer> lowStockItemIds = new HashSet<>();
+    private LocalDate day;
+    private boolean loaded;
+    private boolean reconcileScheduled;
+    private boolean retryScheduled;
+    private Stats lastPublished;
+
+    private DashboardStatsService() {
+        this.foodOrderDAO = new FoodOrderDAO();
+        this.foodItemDAO = new FoodItemDAO();
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dashboard-stats");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static synchronized DashboardStatsService getInstance() {
+        if (instance == null) {
+            instance = new DashboardStatsService();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a listener and sends it the current counters. The first listener loads
+     * the counters from the database and starts periodic reconciliation.
+     */
+    public void addListener(Consumer<Stats> listener) {
+        listeners.add(listener);
+        executor.execute(() -> {
+            if (!reconcileScheduled) {
+                reconcileScheduled = true;
+                executor.scheduleWithFixedDelay(this::reconcile, RECONCILE_SECONDS, RECONCILE_SECONDS, TimeUnit.SECONDS);
+            }
+            if (!loaded || !LocalDate.now().equals(day)) {
+                reconcile();
+            }
+            if (loaded) {
+                listener.accept(currentStats());
+            }
+        });
+    }
+
+    public void removeListener(Consumer<Stats> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * A new pending order was committed; {@code newStock} holds the resulting stock of its items.
+     */
+    public void orderPlaced(int orderId, Map<Integer, Integer> newStock) {
+        submit(() -> {
+            pendingOrderIds.add(orderId);
+            newStock.forEach(this::applyStock);
+        });
+    }
+
+    public void orderStatusChanged(int orderId, String status) {
+        submit(() -> {
+            if ("pending".equalsIgnoreCase(status)) {
+                pendingOrderIds.add(orderId);
+            } else {
+                pendingOrderIds.remove(orderId);
+            }
+            if ("completed".equalsIgnoreCase(status)) {
+                // Today's sales count orders placed today, so only those are looked up
+                Double total = foodOrderDAO.getOrderTotal(orderId, startOfDay(day), startOfDay(day.plusDays(1)));
+                if (total != null) {
+                    completedTodayTotals.put(orderId, total);
+                }
+            } else {
+                completedTodayTotals.remove(orderId);
+            }
+        });
+    }
+
+    public void orderRemoved(int orderId) {
+        ordersRemoved(List.of(orderId));
+    }
+
+    public void ordersRemoved(Collection<Integer> orderIds) {
+        List<Integer> ids = List.copyOf(orderIds);
+        submit(() -> {
+            ids.forEach(pendingOrderIds::remove);
+            ids.forEach(completedTodayTotals::remove);
+        });
+    }
+
+    public void stockChanged(int foodItemId, int stockQuantity) {
+        submit(() -> applyStock(foodItemId, stockQuantity));
+    }
+
+    public void itemRemoved(int foodItemId) {
+        submit(() -> lowStockItemIds.remove(foodItemId));
+    }
+
+    /**
+     * Applies an event once the counters are loaded; until a dashboard asks for them,
+     * events are ignored and cost nothing.
+     */
+    private void submit(DatabaseTask event) {
+        executor.execute(() -> {
+            if (!loaded) {
+                return;
+            }
+            if (!LocalDate.now().equals(day)) {
+                // Past midnight: today's sales start over, so reload rather than patch
+                reconcile();
+                return;
+            }
+            try {
+                event.run();
+            } catch (SQLException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to apply dashboard event, reconciling", e);
+                reconcile();
+                return;
+            }
+            publish();
+        });
+    }
+
+    // Reloads all counters from the database; runs on the executor thread
+    private void reconcile() {
+        try {
+            LocalDate today = LocalDate.now();
+            Set<Integer> pending = foodOrderDAO.getPendingOrderIds();
+            Map<Integer, Double> completed = foodOrderDAO.getCompletedOrderTotals(
+                    startOfDay(today), startOfDay(today.plusDays(1)));
+            Map<Integer, Integer> stockLevels = foodItemDAO.getStockLevels();
+
+            pendingOrderIds.clear();
+            pendingOrderIds.addAll(pending);
+            completedTodayTotals.clear();
+            completedTodayTotals.putAll(completed);
+            lowStockItemIds.clear();
+            stockLevels.forEach(this::applyStock);
+            day = today;
+            loaded = true;
+            publish();
+        } catch (SQLException | RuntimeException e) {
+            // RuntimeException too: DatabaseConnection throws one when no connection can be
+            // made, and an uncaught one would cancel the periodic reconcile for good
+            LOGGER.log(Level.WARNING, "Failed to reconcile dashboard stats", e);
+            if (!loaded && !retryScheduled) {
+                retryScheduled = true;
+                executor.schedule(() -> {
+                    retryScheduled = false;
+                    if (!loaded) {
+                        reconcile();
+                    }
+                }, LOAD_RETRY_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private void applyStock(int foodItemId, int stockQuantity) {
+        if (stockQuantity <= LOW_STOCK_THRESHOLD) {
+            lowStockItemIds.add(foodItemId);
+        } else {
+            lowStockItemIds.remove(foodItemId);
+        }
+    }
+
+    private Stats currentStats() {
+        double todaySales = 0;
+        for (double total : completedTodayTotals.values()) {
+            todaySales += total;
+        }
+        return new Stats(pendingOrderIds.size(), todaySales, lowStockItemIds.size());
+    }
+
+    private void publish() {
+        Stats stats = currentStats();
+        if (stats.equals(lastPublished)) {
+            return;
+        }
+        lastPublished = stats;
+        for (Consumer<Stats> listener : listeners) {
+            listener.accept(stats);
+        }
+    }
+
+    private static Timestamp startOfDay(LocalDate date) {
+        return Timestamp.valueOf(date.atStartOfDay());
+    }
+
+    @FunctionalInterface
+    private interface DatabaseTask {
+        void run() throws SQLException;
+    }
+}
@@ -1,14 +1,25 @@
 package com.example.onestopuiu.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/onestopuiu";
+    private static final String URL = "jdbc:mysql://localhost:3306/onestopuiu?rewriteBatchedStatements=true";
     private static final String USER = "root";
     private static final String PASSWORD = "";
 
+    // Pool settings
+    private static final int MAX_POOL_SIZE = 10;
+    private static final long CONNECTION_TIMEOUT_MS = 10_000;
+    private static final long IDLE_TIMEOUT_MS = 5 * 60_000;
+    private static final long MAX_LIFETIME_MS = 30 * 60_000;
+    private static final long LEAK_THRESHOLD_MS = 60_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private static final ConnectionPool POOL;
+
     static {
         try {
             // Register JDBC driver
@@ -18,16 +29,17 @@ public class DatabaseConnection {
             System.err.println("[Database] Failed to register MySQL JDBC driver: " + e.getMessage());
             System.err.println("[Database] Application will use fallback authentication");
         }
+        POOL = new ConnectionPool(URL, USER, PASSWORD, MAX_POOL_SIZE, CONNECTION_TIMEOUT_MS,
+                IDLE_TIMEOUT_MS, MAX_LIFETIME_MS, LEAK_THRESHOLD_MS, VALIDATION_TIMEOUT_SECONDS);
+        System.out.println("[Database] Connection pool initialized (max " + MAX_POOL_SIZE + " connections) for " + URL);
     }
 
+    /**
+     * Borrows a pooled connection. Closing the returned connection hands it back to the pool.
+     */
     public static Connection getConnection() {
         try {
-            System.out.println("\n[Database] Attempting to connect to database...");
-            System.out.println("[Database] URL: " + URL);
-            System.out.println("[Database] User: " + USER);
-            Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-            System.out.println("[Database] Connection established successfully!");
-            return conn;
+            return POOL.borrow();
         } catch (SQLException e) {
             System.err.println("\n[Database] Failed to connect to database!");
             System.err.println("[Database] Error message: " + e.getMessage());
@@ -43,11 +55,49 @@ public class DatabaseConnection {
             try {
                 if (!connection.isClosed()) {
                     connection.close();
-                    System.out.println("[Database] Connection closed successfully");
                 }
             } catch (SQLException e) {
                 System.err.println("[Database] Error closing connection: " + e.getMessage());
             }
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Takes a MySQL named lock on {@code connection}, waiting up to {@code timeoutSeconds}
+     * (0 means don't wait). The lock belongs to that connection's session, so it is shared by
+     * every process on the database and freed by the server if this process dies. Release it
+     * with {@link #releaseLock} on the same connection before closing it.
+     */
+    public static boolean acquireLock(Connection connection, String name, int timeoutSeconds) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, name);
+            stmt.setInt(2, timeoutSeconds);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    public static void releaseLock(Connection connection, String name) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, name);
+            stmt.executeQuery().close();
+        }
+    }
+
+    public static ConnectionPool getPool() {
+        return POOL;
+    }
+
+    public static String getPoolStats() {
+        return POOL.getStatsSummary();
+    }
+
+    /**
+     * Closes all pooled connections. Call this when the application is shutting down.
+     */
+    public static void shutdown() {
+        POOL.shutdown();
+        System.out.println("[Database] Connection pool shut down (" + POOL.getStatsSummary() + ")");
+    }
+}
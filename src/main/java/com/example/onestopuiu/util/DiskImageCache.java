@@ -0,0 +1,348 @@
+package com.example.onestopuiu.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Disk cache for remote (e.g. ImgBB) images, so food images do not have to be
+ * downloaded again on every start.
+ * Files are named by the SHA-256 of their URL and written to a temp file first,
+ * then renamed into place, so readers never see a partial image. Cached files are
+ * served immediately; once they are older than the revalidation interval they are
+ * revalidated in the background with ETag / Last-Modified. The directory is kept
+ * under a size limit by deleting the least recently used files, except ones used in
+ * the last minute that are likely still being decoded.
+ * Only one download per URL runs at a time; concurrent requests for it wait for that one.
+ * Temp files left behind by a crash are removed when the cache is opened.
+ *
+ * The directory defaults to ~/.onestopuiu/image-cache and can be changed with the
+ * {@code onestopuiu.imageCache.dir} system property.
+ */
+public class DiskImageCache {
+    private static final String DIR_PROPERTY = "onestopuiu.imageCache.dir";
+    private static final long MAX_BYTES = 200L * 1024 * 1024;
+    private static final long DEFAULT_REVALIDATE_AFTER_MS = TimeUnit.HOURS.toMillis(24);
+    private static final int TIMEOUT_MS = 10_000;
+    private static final String DATA_SUFFIX = ".img";
+    private static final String META_SUFFIX = ".meta";
+    private static final long EVICTION_GRACE_MS = TimeUnit.MINUTES.toMillis(1);
+    // Younger temp files may belong to a download still running in another process
+    private static final long ORPHAN_TEMP_AGE_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private static DiskImageCache instance;
+
+    private final Path directory;
+    private final long revalidateAfterMs;
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    // Downloads in progress by cache key
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService revalidator = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "image-revalidator");
+        t.setDaemon(true);
+        return t;
+    });
+
+    DiskImageCache(Path directory, long revalidateAfterMs) {
+        this.directory = directory;
+        this.revalidateAfterMs = revalidateAfterMs;
+        try {
+            Files.createDirectories(directory);
+            deleteOrphanedTempFiles();
+            totalBytes.set(scanSize());
+        } catch (IOException e) {
+            System.err.println("[DiskImageCache] Failed to prepare cache directory " + directory + ": " + e.getMessage());
+        }
+    }
+
+    public static synchronized DiskImageCache getInstance() {
+        if (instance == null) {
+            String configured = System.getProperty(DIR_PROPERTY);
+            Path dir = configured != null
+                    ? Paths.get(configured)
+                    : Paths.get(System.getProperty("user.home"), ".onestopuiu", "image-cache");
+            instance = new DiskImageCache(dir, DEFAULT_REVALIDATE_AFTER_MS);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns a local file holding the image at {@code url}, downloading it if it is not cached.
+     * A stale cached file is returned as is and refreshed in the background.
+     */
+    public Path fetch(String url) throws IOException {
+        String key = hash(url);
+        Path data = directory.resolve(key + DATA_SUFFIX);
+        Path meta = directory.resolve(key + META_SUFFIX);
+
+        if (Files.exists(data)) {
+            touch(data);
+            Properties metadata = readMetadata(meta);
+            long fetchedAt = Long.parseLong(metadata.getProperty("fetchedAt", "0"));
+            if (System.currentTimeMillis() - fetchedAt >= revalidateAfterMs && revalidating.add(key)) {
+                revalidator.submit(() -> {
+                    try {
+                        downloadOnce(key, url, data, meta, metadata);
+                    } catch (IOException e) {
+                        System.err.println("[DiskImageCache] Revalidation failed for " + url + ": " + e.getMessage());
+                    } finally {
+                        revalidating.remove(key);
+                    }
+                });
+            }
+            return data;
+        }
+
+        downloadOnce(key, url, data, meta, new Properties());
+        return data;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Joins a download of the same URL that is already running instead of starting a second one
+    private void downloadOnce(String key, String url, Path data, Path meta, Properties previous) throws IOException {
+        CompletableFuture<Void> mine = new CompletableFuture<>();
+        CompletableFuture<Void> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                running.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for " + url, e);
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+            return;
+        }
+        try {
+            download(url, data, meta, previous);
+            mine.complete(null);
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    // Conditional GET when validators are known; a 304 only refreshes the metadata
+    private void download(String url, Path data, Path meta, Properties previous) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        conn.setInstanceFollowRedirects(true);
+        String etag = previous.getProperty("etag");
+        String lastModified = previous.getProperty("lastModified");
+        boolean haveData = Files.exists(data);
+        if (haveData && etag != null) {
+            conn.setRequestProperty("If-None-Match", etag);
+        }
+        if (haveData && lastModified != null) {
+            conn.setRequestProperty("If-Modified-Since", lastModified);
+        }
+
+        try {
+            int status = conn.getResponseCode();
+            Properties metadata = new Properties();
+            metadata.setProperty("url", url);
+            metadata.setProperty("fetchedAt", String.valueOf(System.currentTimeMillis()));
+
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && haveData) {
+                copyValidators(previous, metadata);
+                writeMetadata(meta, metadata);
+                return;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + status + " for " + url);
+            }
+
+            Path temp = Files.createTempFile(directory, "download-", ".tmp");
+            try {
+                try (InputStream in = conn.getInputStream()) {
+                    Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                replaceData(temp, data);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            if (conn.getHeaderField("ETag") != null) {
+                metadata.setProperty("etag", conn.getHeaderField("ETag"));
+            }
+            if (conn.getHeaderField("Last-Modified") != null) {
+                metadata.setProperty("lastModified", conn.getHeaderField("Last-Modified"));
+            }
+            writeMetadata(meta, metadata);
+
+            if (totalBytes.get() > MAX_BYTES) {
+                evictLeastRecentlyUsed();
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    // Under the eviction lock, so an eviction can't rescan between the move and the size update
+    private synchronized void replaceData(Path temp, Path data) throws IOException {
+        long oldSize = Files.exists(data) ? Files.size(data) : 0;
+        moveIntoPlace(temp, data);
+        totalBytes.addAndGet(Files.size(data) - oldSize);
+    }
+
+    private static void copyValidators(Properties from, Properties to) {
+        if (from.getProperty("etag") != null) {
+            to.setProperty("etag", from.getProperty("etag"));
+        }
+        if (from.getProperty("lastModified") != null) {
+            to.setProperty("lastModified", from.getProperty("lastModified"));
+        }
+    }
+
+    private Properties readMetadata(Path meta) {
+        Properties metadata = new Properties();
+        if (Files.exists(meta)) {
+            try (Reader reader = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+                metadata.load(reader);
+            } catch (IOException e) {
+                // Treat unreadable metadata as missing; the file will be revalidated
+            }
+        }
+        return metadata;
+    }
+
+    private void writeMetadata(Path meta, Properties metadata) throws IOException {
+        Path temp = Files.createTempFile(directory, "meta-", ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                metadata.store(writer, null);
+            }
+            moveIntoPlace(temp, meta);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // The data file's modification time doubles as its last access time
+    private static void touch(Path data) {
+        try {
+            Files.setLastModifiedTime(data, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Only affects eviction order
+        }
+    }
+
+    private synchronized void evictLeastRecentlyUsed() {
+        try {
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + DATA_SUFFIX)) {
+                stream.forEach(files::add);
+            }
+            files.sort(Comparator.comparingLong(DiskImageCache::lastModifiedMillis));
+
+            long size = scanSize();
+            long target = MAX_BYTES * 9 / 10;
+            long graceStart = System.currentTimeMillis() - EVICTION_GRACE_MS;
+            for (Path file : files) {
+                if (size <= target) {
+                    break;
+                }
+                if (lastModifiedMillis(file) > graceStart) {
+                    // Sorted oldest first, so every remaining file was used recently too
+                    break;
+                }
+                long fileSize = Files.size(file);
+                Files.deleteIfExists(file);
+                String name = file.getFileName().toString();
+                Files.deleteIfExists(directory.resolve(
+                        name.substring(0, name.length() - DATA_SUFFIX.length()) + META_SUFFIX));
+                size -= fileSize;
+            }
+            totalBytes.set(size);
+        } catch (IOException e) {
+            System.err.println("[DiskImageCache] Cleanup failed: " + e.getMessage());
+        }
+    }
+
+    private void deleteOrphanedTempFiles() throws IOException {
+        long cutoff = System.currentTimeMillis() - ORPHAN_TEMP_AGE_MS;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "{download,meta}-*.tmp")) {
+            for (Path temp : stream) {
+                if (lastModifiedMillis(temp) < cutoff) {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+    }
+
+    private long scanSize() throws IOException {
+        long size = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + DATA_SUFFIX)) {
+            for (Path file : stream) {
+                size += Files.size(file);
+            }
+        }
+        return size;
+    }
+
+    private static long lastModifiedMillis(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String hash(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
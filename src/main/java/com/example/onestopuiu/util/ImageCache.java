@@ -1,18 +1,47 @@
 package com.example.onestopuiu.util;
 
 import javafx.scene.image.Image;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
  * Utility class for caching and efficiently loading images.
- * Uses a thread pool for parallel loading and a concurrent hash map for caching.
+ * Uses a thread pool for parallel loading and an LRU cache bounded by the estimated
+ * decoded size of its images (width x height x 4 bytes). Evicted images are kept
+ * behind soft references, so they can be reused until the GC needs the memory.
+ * Images are decoded directly at the requested size and cached per (url, width, height);
+ * a request for a small thumbnail is served from any larger decode of the same source.
  */
 public class ImageCache {
-    private static final ConcurrentHashMap<String, Image> imageCache = new ConcurrentHashMap<>();
-    private static final ExecutorService imageLoadExecutor = Executors.newFixedThreadPool(4);
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    // Access-ordered, so iteration starts at the least recently used image; guarded by itself
+    private static final LinkedHashMap<ImageKey, Image> imageCache = new LinkedHashMap<>(64, 0.75f, true);
+    // Cached sizes per source URL; guarded by the imageCache lock
+    private static final Map<String, Set<ImageKey>> sizesByUrl = new HashMap<>();
+    private static final ConcurrentHashMap<ImageKey, SoftReference<Image>> evictedImages = new ConcurrentHashMap<>();
+    private static final ExecutorService imageLoadExecutor = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r, "image-loader");
+        t.setDaemon(true);
+        return t;
+    });
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+    private static long currentBytes;
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong softHits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
     private static final Image DEFAULT_FOOD_IMAGE;
     
     static {
@@ -57,8 +86,10 @@ public class ImageCache {
             return;
         }
         
+        ImageKey key = new ImageKey(imageUrl, (int) Math.ceil(width), (int) Math.ceil(height));
+        
         // Check if image is already in cache
-        Image cachedImage = imageCache.get(imageUrl);
+        Image cachedImage = lookup(key);
         if (cachedImage != null) {
             imageConsumer.accept(cachedImage);
             return;
@@ -80,20 +111,30 @@ public class ImageCache {
                     
                     if (imageFile.exists()) {
                         System.out.println("[ImageCache] Loading local image: " + imageFile.getAbsolutePath());
-                        loadedImage = new Image(imageFile.toURI().toString(), 0, 0, true, true, true);
+                        loadedImage = new Image(imageFile.toURI().toString(), key.width(), key.height(), true, true, false);
                     } else {
                         System.err.println("[ImageCache] Local image file not found: " + localPath);
                     }
+                } else if (imageUrl.startsWith("http://") || imageUrl.startsWith("https://")) {
+                    // Remote images go through the disk cache so restarts don't re-download them
+                    String source = imageUrl;
+                    try {
+                        source = DiskImageCache.getInstance().fetch(imageUrl).toUri().toString();
+                    } catch (java.io.IOException e) {
+                        System.err.println("[ImageCache] Disk cache unavailable for " + imageUrl + ": " + e.getMessage());
+                    }
+                    System.out.println("[ImageCache] Loading external image: " + imageUrl);
+                    loadedImage = new Image(source, key.width(), key.height(), true, true, false);
                 } else {
                     // Try to load as external URL
                     System.out.println("[ImageCache] Loading external image: " + imageUrl);
-                    loadedImage = new Image(imageUrl, 0, 0, true, true, true);
+                    loadedImage = new Image(imageUrl, key.width(), key.height(), true, true, false);
                 }
                 
                 // Only cache and update image if loading was successful
                 if (loadedImage != null && !loadedImage.isError()) {
                     final Image finalImage = loadedImage;
-                    imageCache.put(imageUrl, finalImage);
+                    store(key, finalImage);
                     javafx.application.Platform.runLater(() -> imageConsumer.accept(finalImage));
                 } else {
                     System.err.println("[ImageCache] Failed to load image: " + imageUrl);
@@ -105,11 +146,116 @@ public class ImageCache {
         });
     }
     
+    static Image lookup(ImageKey key) {
+        synchronized (imageCache) {
+            Image image = imageCache.get(key);
+            if (image == null) {
+                // Thumbnail tier: a larger decode of the same source scales down in the ImageView
+                for (ImageKey cachedSize : sizesByUrl.getOrDefault(key.url(), Set.of())) {
+                    if (cachedSize.covers(key)) {
+                        image = imageCache.get(cachedSize);
+                        break;
+                    }
+                }
+            }
+            if (image != null) {
+                hits.incrementAndGet();
+                return image;
+            }
+        }
+        SoftReference<Image> ref = evictedImages.remove(key);
+        Image image = ref != null ? ref.get() : null;
+        if (image != null) {
+            softHits.incrementAndGet();
+            store(key, image);
+            return image;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    static void store(ImageKey key, Image image) {
+        synchronized (imageCache) {
+            sizesByUrl.computeIfAbsent(key.url(), url -> new HashSet<>()).add(key);
+            Image previous = imageCache.put(key, image);
+            if (previous != null) {
+                currentBytes -= estimateBytes(previous);
+            }
+            currentBytes += estimateBytes(image);
+            evictIfNeeded();
+        }
+    }
+
+    // Caller holds the imageCache lock
+    private static void evictIfNeeded() {
+        Iterator<Map.Entry<ImageKey, Image>> it = imageCache.entrySet().iterator();
+        // Always keep the most recently used image, even if it alone exceeds the budget
+        while (currentBytes > maxBytes && imageCache.size() > 1 && it.hasNext()) {
+            Map.Entry<ImageKey, Image> eldest = it.next();
+            it.remove();
+            Set<ImageKey> sizes = sizesByUrl.get(eldest.getKey().url());
+            if (sizes != null && sizes.remove(eldest.getKey()) && sizes.isEmpty()) {
+                sizesByUrl.remove(eldest.getKey().url());
+            }
+            currentBytes -= estimateBytes(eldest.getValue());
+            evictions.incrementAndGet();
+            evictedImages.put(eldest.getKey(), new SoftReference<>(eldest.getValue()));
+        }
+        evictedImages.values().removeIf(ref -> ref.get() == null);
+    }
+
+    private static long estimateBytes(Image image) {
+        return (long) Math.ceil(image.getWidth()) * (long) Math.ceil(image.getHeight()) * 4;
+    }
+
+    /**
+     * Sets the memory budget for cached images, evicting least recently used images if needed.
+     */
+    public static void setMaxBytes(long bytes) {
+        synchronized (imageCache) {
+            maxBytes = bytes;
+            evictIfNeeded();
+        }
+    }
+
+    public static int getEntryCount() {
+        synchronized (imageCache) {
+            return imageCache.size();
+        }
+    }
+
+    public static long getCachedBytes() {
+        synchronized (imageCache) {
+            return currentBytes;
+        }
+    }
+
+    public static long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public static double getHitRate() {
+        long found = hits.get() + softHits.get();
+        long total = found + misses.get();
+        return total == 0 ? 0.0 : (double) found / total;
+    }
+
+    public static String getStatsSummary() {
+        return String.format("entries=%d, bytes=%d/%d, hits=%d, softHits=%d, misses=%d, hitRate=%.1f%%, evictions=%d",
+                getEntryCount(), getCachedBytes(), maxBytes, hits.get(), softHits.get(), misses.get(),
+                getHitRate() * 100, getEvictionCount());
+    }
+
     /**
      * Clears the image cache to free up memory.
      */
     public static void clearCache() {
-        imageCache.clear();
+        synchronized (imageCache) {
+            imageCache.clear();
+            sizesByUrl.clear();
+            currentBytes = 0;
+        }
+        evictedImages.clear();
     }
     
     /**
@@ -119,4 +265,16 @@ public class ImageCache {
     public static void shutdown() {
         imageLoadExecutor.shutdown();
     }
-} 
\ No newline at end of file
+
+    /**
+     * Cache key: source URL plus the bounding box the image was decoded for.
+     * A width or height of 0 means the source's full size.
+     */
+    record ImageKey(String url, int width, int height) {
+        boolean covers(ImageKey other) {
+            return url.equals(other.url)
+                    && (width == 0 || (other.width != 0 && width >= other.width))
+                    && (height == 0 || (other.height != 0 && height >= other.height));
+        }
+    }
+}
\ No newline at end of file
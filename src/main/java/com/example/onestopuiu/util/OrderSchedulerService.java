@@ -1,79 +1,211 @@
 package com.example.onestopuiu.util;
 
+import com.example.onestopuiu.dao.DailySalesDAO;
 import com.example.onestopuiu.dao.FoodOrderDAO;
 import com.example.onestopuiu.model.FoodOrder;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Background jobs for food orders, run by the admin app only: keeping the daily sales
+ * rollup caught up and, once enabled with {@link #startAutoCancel()}, cancelling orders
+ * still pending after {@value #ORDER_TIMEOUT_MINUTES} minutes.
+ *
+ * Each pending order sits in a DelayQueue keyed by its deadline. The queue is seeded once
+ * from the database when auto-cancel starts. After that it is fed by FoodOrderDAO for
+ * orders placed in this app, and by a poll for pending orders above the highest id seen
+ * for orders placed from customers' clients. So an order is cancelled as soon as its
+ * deadline passes without scanning every pending order. The cancel only applies if the
+ * order is still pending and gives its stock back in the same transaction, so orders
+ * completed in time need no tracking and two admin apps can never cancel one order twice.
+ */
 public class OrderSchedulerService {
     private static final Logger LOGGER = Logger.getLogger(OrderSchedulerService.class.getName());
     private static final int ORDER_TIMEOUT_MINUTES = 30;
-    
+    private static final long ORDER_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(ORDER_TIMEOUT_MINUTES);
+    // Picks up orders placed from other clients; a primary key range above the last id seen
+    private static final int NEW_ORDER_POLL_SECONDS = 15;
+    // Catches orders whose id committed after a higher one was already seen; only reads overdue rows
+    private static final int OVERDUE_SWEEP_MINUTES = 5;
+    private static final int ROLLUP_INTERVAL_MINUTES = 5;
+    private static final int ROLLUP_BATCH_SIZE = 500;
+    // Several admin apps may be open; only the one holding this lock runs a catch-up pass
+    private static final String ROLLUP_LOCK = "onestopuiu.daily_sales_catchup";
+
     private final ScheduledExecutorService scheduler;
     private final FoodOrderDAO foodOrderDAO;
-    
+    private final DailySalesDAO dailySalesDAO;
+    private final DelayQueue<OrderDeadline> deadlines = new DelayQueue<>();
+    // Orders currently in the queue, so seeding and placement never add one twice
+    private final Set<Integer> queuedOrderIds = ConcurrentHashMap.newKeySet();
+    private boolean started;
+    private volatile Thread cancellationThread;
+    // Highest pending order id read from the database; only touched on the scheduler thread
+    private int lastSeenOrderId;
+
     private static OrderSchedulerService instance;
-    
+
     private OrderSchedulerService() {
         this.scheduler = Executors.newScheduledThreadPool(1);
         this.foodOrderDAO = new FoodOrderDAO();
+        this.dailySalesDAO = new DailySalesDAO();
     }
-    
+
     public static synchronized OrderSchedulerService getInstance() {
         if (instance == null) {
             instance = new OrderSchedulerService();
         }
         return instance;
     }
-    
-    public void start() {
-        // Check every minute for orders that need to be canceled
-        scheduler.scheduleAtFixedRate(this::checkPendingOrders, 0, 1, TimeUnit.MINUTES);
-        LOGGER.info("Order scheduler service started - will cancel orders after " + ORDER_TIMEOUT_MINUTES + " minutes");
+
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        // Backfill and repair the daily sales rollup; order completions keep it current in between
+        scheduler.scheduleWithFixedDelay(this::catchUpDailySales, 0, ROLLUP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        LOGGER.info("Order scheduler service started");
     }
-    
-    public void stop() {
+
+    /**
+     * Starts cancelling orders still pending after {@value #ORDER_TIMEOUT_MINUTES} minutes.
+     */
+    public synchronized void startAutoCancel() {
+        if (cancellationThread != null) {
+            return;
+        }
+        start();
+        cancellationThread = new Thread(this::cancelExpiredOrders, "order-auto-cancel");
+        cancellationThread.setDaemon(true);
+        cancellationThread.start();
+
+        // The first poll seeds the queue with every pending order
+        scheduler.scheduleWithFixedDelay(this::pollNewOrders, 0, NEW_ORDER_POLL_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::sweepOverdueOrders,
+            OVERDUE_SWEEP_MINUTES, OVERDUE_SWEEP_MINUTES, TimeUnit.MINUTES);
+        LOGGER.info("Automatic cancellation enabled - will cancel orders after " + ORDER_TIMEOUT_MINUTES + " minutes");
+    }
+
+    public synchronized void stop() {
+        if (cancellationThread != null) {
+            cancellationThread.interrupt();
+        }
         scheduler.shutdown();
         LOGGER.info("Order scheduler service stopped");
     }
-    
-    private void checkPendingOrders() {
+
+    /**
+     * Schedules the automatic cancellation of a newly placed order, if auto-cancel runs here.
+     */
+    public void orderPlaced(int orderId, long orderTimeMillis) {
+        if (cancellationThread == null) {
+            return;
+        }
+        schedule(orderId, orderTimeMillis + ORDER_TIMEOUT_MS);
+    }
+
+    private void schedule(int orderId, long deadlineMillis) {
+        if (queuedOrderIds.add(orderId)) {
+            deadlines.put(new OrderDeadline(orderId, deadlineMillis));
+        }
+    }
+
+    private void pollNewOrders() {
         try {
-            // Check food orders
-            checkPendingFoodOrders();
+            List<FoodOrder> pendingOrders = foodOrderDAO.getPendingOrdersAfter(lastSeenOrderId);
+            for (FoodOrder order : pendingOrders) {
+                schedule(order.getId(), order.getOrderTime().getTime() + ORDER_TIMEOUT_MS);
+                lastSeenOrderId = Math.max(lastSeenOrderId, order.getId());
+            }
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error checking pending orders", e);
+            LOGGER.log(Level.SEVERE, "Error loading pending food orders", e);
+        }
+    }
+
+    private void cancelExpiredOrders() {
+        while (!Thread.currentThread().isInterrupted()) {
+            OrderDeadline deadline;
+            try {
+                deadline = deadlines.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            queuedOrderIds.remove(deadline.orderId);
+            try {
+                if (foodOrderDAO.cancelIfPending(deadline.orderId)) {
+                    LOGGER.info("Food order #" + deadline.orderId + " automatically cancelled after "
+                        + ORDER_TIMEOUT_MINUTES + " minutes");
+                }
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Error cancelling food order #" + deadline.orderId, e);
+            }
         }
     }
-    
-    private void checkPendingFoodOrders() {
+
+    private void sweepOverdueOrders() {
         try {
-            List<FoodOrder> pendingOrders = foodOrderDAO.getPendingOrdersForCancellation();
-            
-            for (FoodOrder order : pendingOrders) {
-                Timestamp orderTime = order.getOrderTime();
-                Timestamp currentTime = new Timestamp(System.currentTimeMillis());
-                
-                // Calculate difference in milliseconds
-                long diffInMilliseconds = currentTime.getTime() - orderTime.getTime();
-                long diffInMinutes = TimeUnit.MILLISECONDS.toMinutes(diffInMilliseconds);
-                
-                if (diffInMinutes >= ORDER_TIMEOUT_MINUTES) {
-                    // Cancel the order
-                    order.setStatus("cancelled");
-                    foodOrderDAO.update(order);
-                    LOGGER.info("Food order #" + order.getId() + " automatically cancelled after " + diffInMinutes + " minutes");
+            Timestamp cutoff = new Timestamp(System.currentTimeMillis() - ORDER_TIMEOUT_MS);
+            for (FoodOrder order : foodOrderDAO.getOverduePendingOrders(cutoff)) {
+                schedule(order.getId(), order.getOrderTime().getTime() + ORDER_TIMEOUT_MS);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error checking overdue food orders", e);
+        }
+    }
+
+    private void catchUpDailySales() {
+        try (Connection lockConn = DatabaseConnection.getConnection()) {
+            if (!DatabaseConnection.acquireLock(lockConn, ROLLUP_LOCK, 0)) {
+                return;  // another admin app is already on it
+            }
+            try {
+                int total = 0;
+                int fixed;
+                do {
+                    fixed = dailySalesDAO.catchUp(ROLLUP_BATCH_SIZE);
+                    total += fixed;
+                } while (fixed >= ROLLUP_BATCH_SIZE);
+                if (total > 0) {
+                    LOGGER.info("Daily sales rollup caught up " + total + " orders");
                 }
+            } finally {
+                DatabaseConnection.releaseLock(lockConn, ROLLUP_LOCK);
             }
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error checking pending food orders", e);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error updating daily sales rollup", e);
+        }
+    }
+
+    private static final class OrderDeadline implements Delayed {
+        final int orderId;
+        final long deadlineMillis;
+
+        OrderDeadline(int orderId, long deadlineMillis) {
+            this.orderId = orderId;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineMillis, ((OrderDeadline) other).deadlineMillis);
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package com.example.onestopuiu.util;
+
+import com.example.onestopuiu.dao.DailySalesDAO;
+import com.example.onestopuiu.dao.FoodItemDAO;
+import com.example.onestopuiu.dao.FoodOrderDAO;
+import com.example.onestopuiu.model.FoodItem;
+import com.example.onestopuiu.model.ItemSales;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the food sales report. Totals and the top items come from aggregate queries.
+ * The optional per-item section is streamed row by row straight into the output, so a
+ * full report for a large catalog can go to a file without being held in memory.
+ */
+public class SalesReportWriter {
+    private final FoodOrderDAO foodOrderDAO;
+    private final FoodItemDAO foodItemDAO;
+    private final DailySalesDAO dailySalesDAO = new DailySalesDAO();
+
+    public SalesReportWriter() {
+        this(new FoodOrderDAO(), new FoodItemDAO());
+    }
+
+    public SalesReportWriter(FoodOrderDAO foodOrderDAO, FoodItemDAO foodItemDAO) {
+        this.foodOrderDAO = foodOrderDAO;
+        this.foodItemDAO = foodItemDAO;
+    }
+
+    /**
+     * Writes the report: sales totals, the {@code topItems} best sellers and low-stock
+     * items, followed by every item's totals if {@code includeAllItems} is set.
+     */
+    public void write(Appendable out, int topItems, boolean includeAllItems) throws SQLException, IOException {
+        out.append("=== Food Sales Report ===\n\n");
+
+        // Today's Sales
+        double todaySales = foodOrderDAO.getTodaySales();
+        out.append("Today's Sales: ৳").append(String.format("%.2f", todaySales)).append("\n\n");
+
+        // All-time Sales
+        double allTimeSales = foodOrderDAO.getAllTimeSales();
+        out.append("All-time Sales: ৳").append(String.format("%.2f", allTimeSales)).append("\n\n");
+
+        // Last 7 days, read from the daily sales rollup
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        LocalDate weekStart = tomorrow.minusDays(7);
+        out.append("Sales by Day (last 7 days):\n");
+        Map<LocalDate, Double> dailyTotals = dailySalesDAO.getDailyTotals(weekStart, tomorrow);
+        for (LocalDate day = weekStart; day.isBefore(tomorrow); day = day.plusDays(1)) {
+            out.append("- ").append(day.toString()).append(": ৳")
+                .append(String.format("%.2f", dailyTotals.getOrDefault(day, 0.0))).append("\n");
+        }
+        List<ItemSales> weekItems = dailySalesDAO.getItemSales(weekStart, tomorrow);
+        out.append("\nBest Sellers This Week (completed orders):\n");
+        for (int i = 0; i < weekItems.size() && i < topItems; i++) {
+            ItemSales item = weekItems.get(i);
+            out.append("- ").append(item.getName())
+                .append(" (Sold: ").append(String.valueOf(item.getQuantitySold()))
+                .append(", ৳").append(String.format("%.2f", item.getRevenue()))
+                .append(")\n");
+        }
+        out.append("\n");
+
+        // Best sellers over all time, from completed orders like the totals above
+        out.append("Top ").append(String.valueOf(topItems)).append(" Popular Items (completed orders):\n");
+        for (ItemSales item : foodOrderDAO.getTopSellingItems(topItems)) {
+            out.append("- ").append(item.getName())
+                .append(" (Sold: ").append(String.valueOf(item.getQuantitySold()))
+                .append(")\n");
+        }
+
+        // Low Stock Items
+        out.append("\nLow Stock Items (≤ ").append(String.valueOf(DashboardStatsService.LOW_STOCK_THRESHOLD)).append("):\n");
+        for (FoodItem item : foodItemDAO.getLowStockItems(DashboardStatsService.LOW_STOCK_THRESHOLD)) {
+            out.append("- ").append(item.getName())
+                .append(" (Stock: ").append(String.valueOf(item.getStockQuantity()))
+                .append(")\n");
+        }
+
+        if (includeAllItems) {
+            out.append("\nAll Items (completed orders: units sold, revenue, stock):\n");
+            try {
+                foodOrderDAO.streamItemSales(item -> {
+                    try {
+                        out.append("- ").append(item.getName())
+                            .append(": ").append(String.valueOf(item.getQuantitySold()))
+                            .append(", ৳").append(String.format("%.2f", item.getRevenue()))
+                            .append(", ").append(String.valueOf(item.getStockQuantity()))
+                            .append("\n");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.onestopuiu.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Applies numbered schema changes to an existing database once, in order, and records
+ * them in schema_migrations. Add new changes at the end of {@link #MIGRATIONS} with the next
+ * version number; never renumber or edit one that has shipped.
+ *
+ * Every client runs this at startup, so the whole run holds a MySQL named lock: a second
+ * client starting at the same time waits, then finds the migrations recorded and skips them.
+ *
+ * Index migrations check information_schema first and skip an index whose leading
+ * columns are already covered, so databases created from older dumps (which may already
+ * have some of these keys) don't end up with duplicates.
+ */
+public class SchemaMigrator {
+    private static final Logger LOGGER = Logger.getLogger(SchemaMigrator.class.getName());
+    private static final String LOCK_NAME = "onestopuiu.schema_migrations";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "Normalize food order status to lower case", conn -> execute(conn,
+            "UPDATE food_orders SET status = LOWER(TRIM(status)) WHERE BINARY status <> BINARY LOWER(TRIM(status))")),
+        // Status lookups (pending/completed) with order_time ranges and ordering
+        new Migration(2, "Index food_orders (status, order_time)", conn ->
+            ensureIndex(conn, "food_orders", "idx_food_orders_status_time", "status", "order_time")),
+        // A customer's orders, newest first
+        new Migration(3, "Index food_orders (user_id, order_time)", conn ->
+            ensureIndex(conn, "food_orders", "idx_food_orders_user_time", "user_id", "order_time")),
+        new Migration(4, "Index food_order_items (order_id)", conn ->
+            ensureIndex(conn, "food_order_items", "idx_food_order_items_order", "order_id")),
+        new Migration(5, "Index food_order_items (food_item_id)", conn ->
+            ensureIndex(conn, "food_order_items", "idx_food_order_items_food_item", "food_item_id"))
+    );
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Applies every migration not yet recorded. Each one commits on its own, so a failure
+     * leaves the earlier ones in place and is retried on the next start.
+     */
+    public static void migrate() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (!DatabaseConnection.acquireLock(conn, LOCK_NAME, LOCK_TIMEOUT_SECONDS)) {
+                LOGGER.warning("Another client is still migrating the schema; skipping migrations this run");
+                return;
+            }
+            try {
+                applyPending(conn);
+            } finally {
+                DatabaseConnection.releaseLock(conn, LOCK_NAME);
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Schema migration failed", e);
+        }
+    }
+
+    // Runs under the migration lock, so the applied versions read here can't go stale
+    private static void applyPending(Connection conn) throws SQLException {
+        execute(conn, "CREATE TABLE IF NOT EXISTS schema_migrations (" +
+            "version INT PRIMARY KEY, " +
+            "description VARCHAR(255) NOT NULL, " +
+            "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+
+        Set<Integer> applied = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM schema_migrations")) {
+            while (rs.next()) {
+                applied.add(rs.getInt(1));
+            }
+        }
+
+        for (Migration migration : MIGRATIONS) {
+            if (applied.contains(migration.version)) {
+                continue;
+            }
+            migration.action.apply(conn);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO schema_migrations (version, description) VALUES (?, ?)")) {
+                stmt.setInt(1, migration.version);
+                stmt.setString(2, migration.description);
+                stmt.executeUpdate();
+            }
+            LOGGER.info("Applied schema migration " + migration.version + ": " + migration.description);
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
+    }
+
+    // Creates the index unless one with these leading columns already exists
+    private static void ensureIndex(Connection conn, String table, String name, String... columns) throws SQLException {
+        String wanted = String.join(",", columns);
+        try (PreparedStatement stmt = conn.prepareStatement(
+            "SELECT index_name, GROUP_CONCAT(column_name ORDER BY seq_in_index) AS index_columns " +
+            "FROM information_schema.statistics " +
+            "WHERE table_schema = DATABASE() AND table_name = ? GROUP BY index_name")) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String existing = rs.getString("index_columns");
+                    if (name.equalsIgnoreCase(rs.getString("index_name"))
+                            || existing.equalsIgnoreCase(wanted)
+                            || existing.toLowerCase().startsWith(wanted.toLowerCase() + ",")) {
+                        LOGGER.info("Index on " + table + " (" + wanted + ") already exists as " + rs.getString("index_name"));
+                        return;
+                    }
+                }
+            }
+        }
+        List<String> quoted = new ArrayList<>();
+        for (String column : columns) {
+            quoted.add("`" + column + "`");
+        }
+        execute(conn, "CREATE INDEX `" + name + "` ON `" + table + "` (" + String.join(", ", quoted) + ")");
+    }
+
+    @FunctionalInterface
+    private interface MigrationAction {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final MigrationAction action;
+
+        Migration(int version, String description, MigrationAction action) {
+            this.version = version;
+            this.description = description;
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package com.example.onestopuiu.util;
+
+import com.example.onestopuiu.dao.FoodItemDAO;
+import com.example.onestopuiu.model.FoodItem;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps per-item stock counts in memory so adding to the cart and checking out do not
+ * need a locked database read. Quantities are reserved per holder (one cart) and expire
+ * if the holder goes quiet.
+ *
+ * The counts live in this client process only. They stop carts in the same app from
+ * claiming the same units, but customers on other machines don't see them, so they can't
+ * prevent oversell between clients. That is left to the database: FoodOrderDAO.save
+ * refuses to drive stock below zero, and a checkout that loses that race fails and keeps
+ * its reservation. Counts are reconciled with food_items.stock_quantity in the
+ * background, and an item is re-read as soon as a reservation is refused, so a restock
+ * is picked up at once.
+ *
+ * An item's count is loaded from the database the first time it is used. Screens that
+ * reserve from the FX thread call {@link #preload()} in the background beforehand, so
+ * reserving only touches memory unless it is refused.
+ */
+public class StockReservationService {
+    private static final Logger LOGGER = Logger.getLogger(StockReservationService.class.getName());
+    private static final long RESERVATION_TTL_MS = TimeUnit.MINUTES.toMillis(15);
+    private static final long EXPIRY_SWEEP_SECONDS = 30;
+    private static final long RECONCILE_SECONDS = 60;
+    private static final int LOCK_STRIPES = 16;
+
+    private static StockReservationService instance;
+
+    private final FoodItemDAO foodItemDAO;
+    private final long reservationTtlMs;
+    private final ConcurrentHashMap<Integer, ItemStock> stock = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Hold> holds = new ConcurrentHashMap<>();
+    // Guard the rare compound updates (checkout, reconcile); reserve/release stay lock-free
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+    private final ScheduledExecutorService scheduler;
+
+    private StockReservationService() {
+        this(new FoodItemDAO(), RESERVATION_TTL_MS);
+        scheduler.scheduleWithFixedDelay(this::expireHolds, EXPIRY_SWEEP_SECONDS, EXPIRY_SWEEP_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::reconcile, RECONCILE_SECONDS, RECONCILE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Without the scheduled expiry and reconcile runs; tests call them directly
+    StockReservationService(FoodItemDAO foodItemDAO, long reservationTtlMs) {
+        this.foodItemDAO = foodItemDAO;
+        this.reservationTtlMs = reservationTtlMs;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-reservations");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static synchronized StockReservationService getInstance() {
+        if (instance == null) {
+            instance = new StockReservationService();
+        }
+        return instance;
+    }
+
+    /**
+     * Reservation holder key for a customer's canteen cart.
+     */
+    public static String cartHolder(int userId) {
+        return "cart-" + userId;
+    }
+
+    /**
+     * Loads the stock of every item not counted yet in one query. Counts already held are
+     * left alone; the background reconcile keeps those current.
+     */
+    public void preload() throws SQLException {
+        for (Map.Entry<Integer, Integer> entry : foodItemDAO.getStockLevels().entrySet()) {
+            stock.computeIfAbsent(entry.getKey(), id -> new ItemStock(entry.getValue()));
+        }
+    }
+
+    /**
+     * Reserves {@code quantity} more units of an item for the holder.
+     * Returns false, reserving nothing, if not enough unreserved stock is left.
+     */
+    public boolean reserve(String holder, int foodItemId, int quantity) throws SQLException {
+        ItemStock item = stockFor(foodItemId);
+        boolean refreshed = false;
+        while (true) {
+            Hold hold = holds.computeIfAbsent(holder, key -> new Hold());
+            synchronized (hold) {
+                if (hold.closed) {
+                    continue;  // expired or checked out concurrently, start a fresh hold
+                }
+                if (!item.tryReserve(quantity)) {
+                    if (refreshed) {
+                        return false;
+                    }
+                } else {
+                    hold.quantities.merge(foodItemId, quantity, Integer::sum);
+                    hold.touch(reservationTtlMs);
+                    return true;
+                }
+            }
+            // Our count may predate a restock; read the item once and try again
+            refreshed = true;
+            refresh(foodItemId);
+        }
+    }
+
+    /**
+     * Gives back up to {@code quantity} units the holder has reserved for an item.
+     */
+    public void release(String holder, int foodItemId, int quantity) {
+        Hold hold = holds.get(holder);
+        if (hold == null) {
+            return;
+        }
+        synchronized (hold) {
+            Integer held = hold.quantities.get(foodItemId);
+            if (hold.closed || held == null) {
+                return;
+            }
+            int released = Math.min(held, quantity);
+            if (held == released) {
+                hold.quantities.remove(foodItemId);
+            } else {
+                hold.quantities.put(foodItemId, held - released);
+            }
+            stock.get(foodItemId).release(released);
+            hold.touch(reservationTtlMs);
+        }
+    }
+
+    /**
+     * Gives back everything the holder has reserved, e.g. when the cart is abandoned.
+     */
+    public void releaseAll(String holder) {
+        Hold hold = holds.remove(holder);
+        if (hold != null) {
+            closeAndRelease(hold);
+        }
+    }
+
+    /**
+     * Places an order against the holder's reservation. The holder's reservation is first
+     * brought in line with {@code quantities}; if that fails nothing is placed and an
+     * SQLException is thrown. On success the reserved units become permanent (the order
+     * has taken them out of the database stock). On failure the reservation is kept so the
+     * checkout can be retried.
+     */
+    public <T> T checkout(String holder, Map<Integer, Integer> quantities, Callable<T> placeOrder) throws Exception {
+        Map<Integer, Integer> required = new TreeMap<>(quantities);
+        for (int foodItemId : required.keySet()) {
+            stockFor(foodItemId);
+        }
+
+        Hold hold;
+        boolean refreshed = false;
+        while (true) {
+            hold = holds.computeIfAbsent(holder, key -> new Hold());
+            synchronized (hold) {
+                if (hold.closed) {
+                    continue;
+                }
+                if (alignHold(hold, required)) {
+                    hold.closed = true;  // no further changes while the order is placed
+                    holds.remove(holder, hold);
+                    break;
+                }
+                if (refreshed) {
+                    throw new SQLException("Insufficient stock to place this order");
+                }
+            }
+            // Our counts may predate a restock; read the items once and try again
+            refreshed = true;
+            for (int foodItemId : required.keySet()) {
+                refresh(foodItemId);
+            }
+        }
+
+        markInFlight(required.keySet());
+        boolean placed = false;
+        try {
+            T result = placeOrder.call();
+            placed = true;
+            return result;
+        } finally {
+            for (Map.Entry<Integer, Integer> entry : required.entrySet()) {
+                ReentrantLock lock = stripeFor(entry.getKey());
+                lock.lock();
+                try {
+                    ItemStock item = stock.get(entry.getKey());
+                    if (placed) {
+                        item.commit(entry.getValue());
+                    }
+                    item.inFlightCheckouts--;
+                    item.version++;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if (!placed) {
+                restoreHold(holder, hold);
+            }
+        }
+    }
+
+    /**
+     * Units of an item not yet reserved by anyone, or -1 if the item has not been loaded.
+     */
+    public int getAvailable(int foodItemId) {
+        ItemStock item = stock.get(foodItemId);
+        return item == null ? -1 : item.available();
+    }
+
+    public int getReservedBy(String holder, int foodItemId) {
+        Hold hold = holds.get(holder);
+        if (hold == null) {
+            return 0;
+        }
+        synchronized (hold) {
+            return hold.closed ? 0 : hold.quantities.getOrDefault(foodItemId, 0);
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // Reserves or releases the difference between what the hold has and what is required
+    private boolean alignHold(Hold hold, Map<Integer, Integer> required) {
+        Map<Integer, Integer> added = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : required.entrySet()) {
+            int missing = entry.getValue() - hold.quantities.getOrDefault(entry.getKey(), 0);
+            if (missing > 0) {
+                if (!stock.get(entry.getKey()).tryReserve(missing)) {
+                    added.forEach((id, qty) -> {
+                        stock.get(id).release(qty);
+                        hold.quantities.merge(id, -qty, Integer::sum);
+                    });
+                    hold.quantities.values().removeIf(qty -> qty <= 0);
+                    return false;
+                }
+                added.put(entry.getKey(), missing);
+                hold.quantities.merge(entry.getKey(), missing, Integer::sum);
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : new HashMap<>(hold.quantities).entrySet()) {
+            int extra = entry.getValue() - required.getOrDefault(entry.getKey(), 0);
+            if (extra > 0) {
+                stock.get(entry.getKey()).release(extra);
+                hold.quantities.merge(entry.getKey(), -extra, Integer::sum);
+            }
+        }
+        hold.quantities.values().removeIf(qty -> qty <= 0);
+        return true;
+    }
+
+    private void restoreHold(String holder, Hold failed) {
+        Hold restored = new Hold();
+        synchronized (failed) {
+            restored.quantities.putAll(failed.quantities);
+        }
+        restored.touch(reservationTtlMs);
+        Hold existing = holds.putIfAbsent(holder, restored);
+        if (existing != null) {
+            // The holder already started a new cart; fold the old reservation into it
+            synchronized (existing) {
+                if (!existing.closed) {
+                    restored.quantities.forEach((id, qty) -> existing.quantities.merge(id, qty, Integer::sum));
+                    return;
+                }
+            }
+            closeAndRelease(restored);
+        }
+    }
+
+    private void closeAndRelease(Hold hold) {
+        synchronized (hold) {
+            if (hold.closed) {
+                return;
+            }
+            hold.closed = true;
+            hold.quantities.forEach((id, qty) -> stock.get(id).release(qty));
+            hold.quantities.clear();
+        }
+    }
+
+    private ItemStock stockFor(int foodItemId) throws SQLException {
+        ItemStock item = stock.get(foodItemId);
+        if (item != null) {
+            return item;
+        }
+        int dbStock = foodItemDAO.get(foodItemId)
+                .orElseThrow(() -> new SQLException("Food item not found with ID: " + foodItemId))
+                .getStockQuantity();
+        return stock.computeIfAbsent(foodItemId, id -> new ItemStock(dbStock));
+    }
+
+    // Re-reads one item's database stock unless a checkout touched it meanwhile
+    private void refresh(int foodItemId) throws SQLException {
+        ItemStock item = stock.get(foodItemId);
+        ReentrantLock lock = stripeFor(foodItemId);
+        long version;
+        lock.lock();
+        try {
+            version = item.version;
+        } finally {
+            lock.unlock();
+        }
+
+        int dbStock = foodItemDAO.get(foodItemId).map(FoodItem::getStockQuantity).orElse(0);
+
+        lock.lock();
+        try {
+            if (item.inFlightCheckouts == 0 && item.version == version) {
+                item.setDbStock(dbStock);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void markInFlight(Iterable<Integer> foodItemIds) {
+        for (int foodItemId : foodItemIds) {
+            ReentrantLock lock = stripeFor(foodItemId);
+            lock.lock();
+            try {
+                ItemStock item = stock.get(foodItemId);
+                item.inFlightCheckouts++;
+                item.version++;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private ReentrantLock stripeFor(int foodItemId) {
+        return stripes[Math.floorMod(foodItemId, LOCK_STRIPES)];
+    }
+
+    void expireHolds() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Hold> entry : holds.entrySet()) {
+            Hold hold = entry.getValue();
+            boolean expired;
+            synchronized (hold) {
+                expired = !hold.closed && hold.expiresAt <= now;
+            }
+            if (expired && holds.remove(entry.getKey(), hold)) {
+                closeAndRelease(hold);
+                LOGGER.info("Stock reservation for " + entry.getKey() + " expired");
+            }
+        }
+    }
+
+    void reconcile() {
+        try {
+            Map<Integer, Long> versions = new HashMap<>();
+            for (Map.Entry<Integer, ItemStock> entry : stock.entrySet()) {
+                ReentrantLock lock = stripeFor(entry.getKey());
+                lock.lock();
+                try {
+                    versions.put(entry.getKey(), entry.getValue().version);
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            Map<Integer, Integer> dbStock = foodItemDAO.getStockLevels();
+
+            for (Map.Entry<Integer, Long> entry : versions.entrySet()) {
+                int foodItemId = entry.getKey();
+                ReentrantLock lock = stripeFor(foodItemId);
+                lock.lock();
+                try {
+                    ItemStock item = stock.get(foodItemId);
+                    // Skip items touched by a checkout since the snapshot; the next run picks them up
+                    if (item.inFlightCheckouts > 0 || item.version != entry.getValue()) {
+                        continue;
+                    }
+                    item.setDbStock(dbStock.getOrDefault(foodItemId, 0));
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error reconciling stock reservations", e);
+        }
+    }
+
+    /**
+     * Stock of one item. Database stock and reserved units are packed into a single
+     * AtomicLong so a reservation can check and claim stock with one compare-and-set.
+     */
+    static final class ItemStock {
+        private final AtomicLong state;
+        // Guarded by the item's stripe lock
+        int inFlightCheckouts;
+        long version;
+
+        ItemStock(int dbStock) {
+            this.state = new AtomicLong(pack(dbStock, 0));
+        }
+
+        boolean tryReserve(int quantity) {
+            while (true) {
+                long current = state.get();
+                int dbStock = dbStock(current);
+                int reserved = reserved(current);
+                if (dbStock - reserved < quantity) {
+                    return false;
+                }
+                if (state.compareAndSet(current, pack(dbStock, reserved + quantity))) {
+                    return true;
+                }
+            }
+        }
+
+        void release(int quantity) {
+            state.updateAndGet(current -> pack(dbStock(current), Math.max(0, reserved(current) - quantity)));
+        }
+
+        // An order took reserved units out of the database stock
+        void commit(int quantity) {
+            state.updateAndGet(current ->
+                    pack(dbStock(current) - quantity, Math.max(0, reserved(current) - quantity)));
+        }
+
+        void setDbStock(int dbStock) {
+            state.updateAndGet(current -> pack(dbStock, reserved(current)));
+        }
+
+        int available() {
+            long current = state.get();
+            return Math.max(0, dbStock(current) - reserved(current));
+        }
+
+        private static long pack(int dbStock, int reserved) {
+            return ((long) dbStock << 32) | (reserved & 0xFFFFFFFFL);
+        }
+
+        private static int dbStock(long state) {
+            return (int) (state >> 32);
+        }
+
+        private static int reserved(long state) {
+            return (int) state;
+        }
+    }
+
+    // Units reserved by one cart
+    private static final class Hold {
+        final Map<Integer, Integer> quantities = new HashMap<>();
+        long expiresAt;
+        boolean closed;
+
+        void touch(long ttlMs) {
+            expiresAt = System.currentTimeMillis() + ttlMs;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.onestopuiu.util;
+
+import javafx.application.Platform;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+
+/**
+ * Helpers for lazily loading table rows as the user scrolls.
+ */
+public class TableScrollUtils {
+    private static final String LISTENER_KEY = "onestopuiu.scrollNearBottomListener";
+    private static final double NEAR_BOTTOM_THRESHOLD = 0.95;
+
+    /**
+     * Runs {@code onNearBottom} whenever the table's vertical scroll bar reaches the end of its range.
+     * The scroll bar only exists once the table skin is created, so this hooks in after that.
+     * It fires on every scroll movement past the threshold, so a caller that loads pages
+     * asynchronously must ignore calls while a page is still loading.
+     */
+    public static void onScrolledNearBottom(TableView<?> table, Runnable onNearBottom) {
+        if (table.getSkin() != null) {
+            attach(table, onNearBottom);
+        }
+        table.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+            if (newSkin != null) {
+                Platform.runLater(() -> attach(table, onNearBottom));
+            }
+        });
+    }
+
+    private static void attach(TableView<?> table, Runnable onNearBottom) {
+        if (table.getProperties().containsKey(LISTENER_KEY)) {
+            return;
+        }
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((obs, oldValue, newValue) -> {
+                    if (newValue.doubleValue() >= bar.getMax() * NEAR_BOTTOM_THRESHOLD) {
+                        onNearBottom.run();
+                    }
+                });
+                table.getProperties().put(LISTENER_KEY, Boolean.TRUE);
+                return;
+            }
+        }
+    }
+}
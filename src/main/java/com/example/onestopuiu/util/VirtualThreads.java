@@ -0,0 +1,79 @@
+package com.example.onestopuiu.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to Java 21 virtual threads from code that is still compiled for Java 17.
+ * The JDK methods are looked up reflectively, so on an older runtime everything falls
+ * back to ordinary platform threads. The same build uses virtual threads when it runs on Java 21;
+ * the virtual-threads Maven profile (-Pvirtual-threads) compiles for Java 21 outright.
+ */
+public final class VirtualThreads {
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_START;
+    private static final Method NEW_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderStart = null;
+        Method perTaskExecutor = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builder.getMethod("name", String.class);
+            builderStart = builder.getMethod("start", Runnable.class);
+            perTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (ReflectiveOperationException e) {
+            // Runtime older than Java 21
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_START = builderStart;
+        NEW_PER_TASK_EXECUTOR = perTaskExecutor;
+    }
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return NEW_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Starts a task on a new virtual thread, or on a daemon platform thread if virtual
+     * threads are not available.
+     */
+    public static Thread start(String name, Runnable task) {
+        if (isSupported()) {
+            try {
+                Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name);
+                return (Thread) BUILDER_START.invoke(builder, task);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("[VirtualThreads] Falling back to a platform thread: " + e.getMessage());
+            }
+        }
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Executor that runs every task on its own virtual thread, or a cached platform thread
+     * pool if virtual threads are not available.
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        if (isSupported()) {
+            try {
+                return (ExecutorService) NEW_PER_TASK_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("[VirtualThreads] Falling back to platform threads: " + e.getMessage());
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+}
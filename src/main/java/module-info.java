@@ -6,6 +6,7 @@ module com.example.onestopuiu {
     requires transitive java.sql;
     requires java.naming;
     requires java.desktop;
+    requires jdk.httpserver;
 
     opens com.example.onestopuiu to javafx.fxml;
     opens com.example.onestopuiu.controller to javafx.fxml;
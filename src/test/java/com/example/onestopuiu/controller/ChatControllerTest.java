@@ -0,0 +1,70 @@
+package com.example.onestopuiu.controller;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatControllerTest {
+
+    @Test
+    void queuedLinesAreAppendedInOrder() {
+        ObservableList<String> items = FXCollections.observableArrayList("a");
+        Queue<String> pending = new ArrayDeque<>(List.of("b", "c"));
+
+        assertTrue(ChatController.drainInto(pending, items, 10));
+        assertEquals(List.of("a", "b", "c"), items);
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    void transcriptKeepsTheNewestLines() {
+        ObservableList<String> items = FXCollections.observableArrayList("a", "b");
+        Queue<String> pending = new ArrayDeque<>(List.of("c", "d"));
+
+        ChatController.drainInto(pending, items, 3);
+        assertEquals(List.of("b", "c", "d"), items);
+
+        pending.addAll(List.of("e", "f", "g", "h"));
+        ChatController.drainInto(pending, items, 3);
+        assertEquals(List.of("f", "g", "h"), items);
+    }
+
+    @Test
+    void freshJoinReplacesTheOldTranscript() {
+        // A reconnect that was not resumed replays the room from the top
+        ObservableList<String> items = FXCollections.observableArrayList("alice: hi", "bob: hello");
+        Queue<String> pending = new ArrayDeque<>();
+        pending.add("bob: still there?");
+        pending.add(ChatController.CLEAR_TRANSCRIPT);
+        pending.addAll(List.of("alice: hi", "bob: hello", "bob: still there?"));
+
+        assertTrue(ChatController.drainInto(pending, items, 10));
+        assertEquals(List.of("alice: hi", "bob: hello", "bob: still there?"), items);
+    }
+
+    @Test
+    void clearWithNothingAfterItEmptiesTheTranscript() {
+        ObservableList<String> items = FXCollections.observableArrayList("alice: hi");
+        Queue<String> pending = new ArrayDeque<>(List.of(ChatController.CLEAR_TRANSCRIPT));
+
+        assertFalse(ChatController.drainInto(pending, items, 10));
+        assertTrue(items.isEmpty());
+    }
+
+    @Test
+    void lineEqualToTheMarkerTextIsKept() {
+        ObservableList<String> items = FXCollections.observableArrayList("a");
+        Queue<String> pending = new ArrayDeque<>(List.of(new String("CLEAR_TRANSCRIPT")));
+
+        ChatController.drainInto(pending, items, 10);
+        assertEquals(List.of("a", "CLEAR_TRANSCRIPT"), items);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.onestopuiu.dao;
+
+import com.example.onestopuiu.model.OrderDisplayItem;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Counts the statements behind one admin orders page using a fake connection whose
+ * result set returns as many rows as the query's LIMIT asks for.
+ */
+class FoodOrderDAOPageQueryTest {
+
+    private static final int[] PAGE_SIZES = {1, 25, 500};
+
+    @Test
+    void filteredPageIsOneQueryWhateverItsSize() throws SQLException {
+        OrderDisplayItem after = new OrderDisplayItem();
+        after.orderId = 1_000_000;
+        after.orderTime = new Timestamp(System.currentTimeMillis());
+        for (int pageSize : PAGE_SIZES) {
+            CountingConnection counting = new CountingConnection();
+            List<OrderDisplayItem> page = FoodOrderDAO.getOrderDisplayPage(counting.proxy(),
+                    "pending", "bKash", "ali", after, pageSize);
+
+            assertEquals(pageSize, page.size());
+            assertEquals(1, counting.prepared, "statements prepared for a page of " + pageSize);
+            assertEquals(1, counting.executed, "queries run for a page of " + pageSize);
+        }
+    }
+
+    @Test
+    void unfilteredPageIsOneQueryWhateverItsSize() throws SQLException {
+        for (int pageSize : PAGE_SIZES) {
+            CountingConnection counting = new CountingConnection();
+            List<OrderDisplayItem> page = FoodOrderDAO.getOrderDisplayPage(counting.proxy(),
+                    null, null, null, null, pageSize);
+
+            assertEquals(pageSize, page.size());
+            assertEquals(1, counting.prepared, "statements prepared for a page of " + pageSize);
+            assertEquals(1, counting.executed, "queries run for a page of " + pageSize);
+        }
+    }
+
+    private static final class CountingConnection {
+        int prepared;
+        int executed;
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(FoodOrderDAOPageQueryTest.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "prepareStatement":
+                                prepared++;
+                                return statement();
+                            case "close":
+                                return null;
+                            default:
+                                throw new SQLFeatureNotSupportedException(method.getName());
+                        }
+                    });
+        }
+
+        private PreparedStatement statement() {
+            List<Object> params = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(FoodOrderDAOPageQueryTest.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setObject":
+                                params.add(args[1]);
+                                return null;
+                            case "executeQuery":
+                                executed++;
+                                // The LIMIT is the last parameter; act like a table with plenty of orders
+                                return resultSet((Integer) params.get(params.size() - 1));
+                            case "close":
+                                return null;
+                            default:
+                                throw new SQLFeatureNotSupportedException(method.getName());
+                        }
+                    });
+        }
+
+        private static ResultSet resultSet(int rows) {
+            int[] cursor = {0};
+            return (ResultSet) Proxy.newProxyInstance(FoodOrderDAOPageQueryTest.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "next":
+                                return ++cursor[0] <= rows;
+                            case "getInt":
+                                return cursor[0];
+                            case "getDouble":
+                                return 10.0;
+                            case "getTimestamp":
+                                return new Timestamp(1_700_000_000_000L - cursor[0] * 60_000L);
+                            case "getString":
+                                return "status".equals(args[0]) ? "pending" : "value";
+                            case "close":
+                                return null;
+                            default:
+                                throw new SQLFeatureNotSupportedException(method.getName());
+                        }
+                    });
+        }
+    }
+}
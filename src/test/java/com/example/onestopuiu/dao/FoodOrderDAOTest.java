@@ -0,0 +1,154 @@
+package com.example.onestopuiu.dao;
+
+import com.example.onestopuiu.model.FoodOrder;
+import com.example.onestopuiu.model.FoodOrderItem;
+import com.example.onestopuiu.util.DatabaseConnection;
+import com.example.onestopuiu.util.TestDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Places orders from many threads at once against the same food items. Needs the
+ * application's MySQL database and is skipped when it can't be reached.
+ */
+class FoodOrderDAOTest {
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 10;
+    private static final int STOCK_A = 40;
+    private static final int STOCK_B = 30;
+
+    private static Connection conn;
+    private static int userId;
+    private static int itemA;
+    private static int itemB;
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        conn = TestDatabase.connectOrSkip();
+        userId = TestDatabase.createUser(conn);
+        itemA = TestDatabase.createFoodItem(conn, STOCK_A);
+        itemB = TestDatabase.createFoodItem(conn, STOCK_B);
+    }
+
+    @AfterAll
+    static void cleanUp() throws SQLException {
+        if (conn == null) {
+            return;
+        }
+        try {
+            TestDatabase.deleteUser(conn, userId);
+            TestDatabase.deleteFoodItem(conn, itemA);
+            TestDatabase.deleteFoodItem(conn, itemB);
+        } finally {
+            DatabaseConnection.closeConnection(conn);
+        }
+    }
+
+    @Test
+    void parallelCheckoutsNeverOversell() throws Exception {
+        FoodOrderDAO dao = new FoodOrderDAO();
+        Map<Integer, AtomicInteger> sold = new ConcurrentHashMap<>(Map.of(itemA, new AtomicInteger(), itemB, new AtomicInteger()));
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        List<String> unexpected = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                        // Items in either order, so row locking order is exercised both ways
+                        List<FoodOrderItem> items = new ArrayList<>();
+                        items.add(item(itemA, 1 + random.nextInt(3)));
+                        if (random.nextBoolean()) {
+                            items.add(item(itemB, 1 + random.nextInt(3)));
+                        }
+                        Collections.shuffle(items, random);
+                        FoodOrder order = new FoodOrder();
+                        order.setUserId(userId);
+                        order.setItems(items);
+                        try {
+                            dao.save(order);
+                            placed.incrementAndGet();
+                            for (FoodOrderItem item : items) {
+                                sold.get(item.getFoodItemId()).addAndGet(item.getQuantity());
+                            }
+                        } catch (SQLException e) {
+                            if (e.getMessage() != null && e.getMessage().startsWith("Insufficient stock")) {
+                                refused.incrementAndGet();
+                            } else {
+                                unexpected.add(e.toString());
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Rows are locked in id order, so concurrent checkouts may be refused but never deadlock
+        assertTrue(unexpected.isEmpty(), "Unexpected failures: " + unexpected);
+        assertEquals(THREADS * ORDERS_PER_THREAD, placed.get() + refused.get());
+
+        int stockA = TestDatabase.stockOf(conn, itemA);
+        int stockB = TestDatabase.stockOf(conn, itemB);
+        assertTrue(stockA >= 0 && stockB >= 0, "Stock went negative: " + stockA + ", " + stockB);
+        assertEquals(STOCK_A, stockA + sold.get(itemA).get());
+        assertEquals(STOCK_B, stockB + sold.get(itemB).get());
+        assertEquals(sold.get(itemA).get(), orderedQuantity(itemA));
+        assertEquals(sold.get(itemB).get(), orderedQuantity(itemB));
+    }
+
+    private static FoodOrderItem item(int foodItemId, int quantity) {
+        FoodOrderItem item = new FoodOrderItem();
+        item.setFoodItemId(foodItemId);
+        item.setQuantity(quantity);
+        item.setUnitPrice(10.0);
+        return item;
+    }
+
+    // What the committed orders say was sold, independent of the stock column
+    private static int orderedQuantity(int foodItemId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+            "SELECT COALESCE(SUM(i.quantity), 0) FROM food_order_items i " +
+            "JOIN food_orders o ON o.id = i.order_id WHERE o.user_id = ? AND i.food_item_id = ?")) {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, foodItemId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
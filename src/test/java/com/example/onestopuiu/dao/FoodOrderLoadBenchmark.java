@@ -0,0 +1,137 @@
+package com.example.onestopuiu.dao;
+
+import com.example.onestopuiu.model.FoodOrder;
+import com.example.onestopuiu.model.FoodOrderItem;
+import com.example.onestopuiu.util.DatabaseConnection;
+import com.example.onestopuiu.util.TestDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares loading a user's order history with the joined query in
+ * {@link FoodOrderDAO#getByUserId} against the old one-query-per-order loader, at 1k, 10k
+ * and 100k orders. Round trips are read from the server's global {@code Questions}
+ * counter, so run it against a quiet database. Not part of the default test run:
+ * <pre>mvn test -Dtest=FoodOrderLoadBenchmark</pre>
+ * Skipped when the database can't be reached.
+ */
+class FoodOrderLoadBenchmark {
+    private static final int[] ORDER_COUNTS = {1_000, 10_000, 100_000};
+
+    private static Connection conn;
+    private static int userId;
+    private static int foodItemId;
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        conn = TestDatabase.connectOrSkip();
+        userId = TestDatabase.createUser(conn);
+        foodItemId = TestDatabase.createFoodItem(conn, 0);
+    }
+
+    @AfterAll
+    static void cleanUp() throws SQLException {
+        if (conn == null) {
+            return;
+        }
+        try {
+            TestDatabase.deleteUser(conn, userId);
+            TestDatabase.deleteFoodItem(conn, foodItemId);
+        } finally {
+            DatabaseConnection.closeConnection(conn);
+        }
+    }
+
+    @Test
+    void joinedLoadAgainstOneQueryPerOrder() throws SQLException {
+        FoodOrderDAO dao = new FoodOrderDAO();
+        System.out.printf("%-8s %-14s %12s %10s%n", "orders", "loader", "round trips", "ms");
+
+        int seeded = 0;
+        for (int orders : ORDER_COUNTS) {
+            TestDatabase.insertOrders(conn, userId, foodItemId, orders - seeded, 0);
+            seeded = orders;
+
+            // Warm both paths once so the first measurement isn't paying for cold caches
+            dao.getByUserId(userId);
+            loadOneQueryPerOrder(userId);
+
+            long questions = questions();
+            long start = System.nanoTime();
+            List<FoodOrder> joined = dao.getByUserId(userId);
+            long joinedMs = (System.nanoTime() - start) / 1_000_000;
+            long joinedTrips = questions() - questions - 1;
+
+            questions = questions();
+            start = System.nanoTime();
+            List<FoodOrder> perOrder = loadOneQueryPerOrder(userId);
+            long perOrderMs = (System.nanoTime() - start) / 1_000_000;
+            long perOrderTrips = questions() - questions - 1;
+
+            System.out.printf("%-8d %-14s %12d %10d%n", orders, "joined", joinedTrips, joinedMs);
+            System.out.printf("%-8d %-14s %12d %10d%n", orders, "per-order", perOrderTrips, perOrderMs);
+
+            assertEquals(orders, joined.size());
+            assertEquals(orders, perOrder.size());
+            assertTrue(joined.stream().allMatch(order -> order.getItems().size() == 1));
+            assertTrue(joinedTrips < perOrderTrips, "joined load should need fewer round trips");
+        }
+    }
+
+    // The loader getByUserId replaced: the orders, then one item query for each
+    private static List<FoodOrder> loadOneQueryPerOrder(int userId) throws SQLException {
+        List<FoodOrder> orders = new ArrayList<>();
+        try (Connection db = DatabaseConnection.getConnection()) {
+            try (PreparedStatement stmt = db.prepareStatement(
+                "SELECT id, user_id, order_time, status FROM food_orders WHERE user_id = ? ORDER BY id")) {
+                stmt.setInt(1, userId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        FoodOrder order = new FoodOrder();
+                        order.setId(rs.getInt("id"));
+                        order.setUserId(rs.getInt("user_id"));
+                        order.setOrderTime(rs.getTimestamp("order_time"));
+                        order.setStatus(rs.getString("status"));
+                        orders.add(order);
+                    }
+                }
+            }
+            try (PreparedStatement stmt = db.prepareStatement(
+                "SELECT i.id, i.order_id, i.food_item_id, f.name, i.quantity, i.unit_price " +
+                "FROM food_order_items i JOIN food_items f ON i.food_item_id = f.id WHERE i.order_id = ?")) {
+                for (FoodOrder order : orders) {
+                    stmt.setInt(1, order.getId());
+                    List<FoodOrderItem> items = new ArrayList<>();
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            items.add(new FoodOrderItem(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+                                    rs.getString(4), rs.getInt(5), rs.getDouble(6)));
+                        }
+                    }
+                    order.setItems(items);
+                }
+            }
+        }
+        return orders;
+    }
+
+    // Statements the server has run for all clients; reading it counts as one more
+    private static long questions() throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SHOW GLOBAL STATUS LIKE 'Questions'");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(2);
+        }
+    }
+}
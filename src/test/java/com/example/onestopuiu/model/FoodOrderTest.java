@@ -0,0 +1,35 @@
+package com.example.onestopuiu.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FoodOrderTest {
+
+    @Test
+    void normalizesCaseAndWhitespace() {
+        assertEquals(FoodOrder.STATUS_PENDING, FoodOrder.normalizeStatus("Pending"));
+        assertEquals(FoodOrder.STATUS_COMPLETED, FoodOrder.normalizeStatus(" COMPLETED "));
+        assertEquals(FoodOrder.STATUS_CANCELLED, FoodOrder.normalizeStatus("cancelled"));
+    }
+
+    @Test
+    void keepsNull() {
+        assertNull(FoodOrder.normalizeStatus(null));
+    }
+
+    @Test
+    void ignoresDefaultLocale() {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            // Turkish lower-cases I to a dotless i, which would never match the stored value
+            assertEquals(FoodOrder.STATUS_PENDING, FoodOrder.normalizeStatus("PENDING"));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.onestopuiu.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatHistoryLogTest {
+    private static final String ROOM = "food/court";
+
+    @TempDir
+    Path historyDir;
+
+    @BeforeEach
+    void useTempDir() {
+        System.setProperty("chat.history.dir", historyDir.toString());
+    }
+
+    @AfterEach
+    void clearTempDir() {
+        System.clearProperty("chat.history.dir");
+    }
+
+    @Test
+    void readsBackAppendedRange() throws IOException {
+        ChatHistoryLog log = new ChatHistoryLog(ROOM);
+        for (long seq = 1; seq <= 5; seq++) {
+            log.append(seq, 1000 + seq, "message " + seq);
+        }
+
+        List<ChatHistoryLog.HistoryEntry> entries = log.read(2, 5);
+        assertEquals(List.of(
+                new ChatHistoryLog.HistoryEntry(2, 1002, "message 2"),
+                new ChatHistoryLog.HistoryEntry(3, 1003, "message 3"),
+                new ChatHistoryLog.HistoryEntry(4, 1004, "message 4")), entries);
+        assertEquals(6, log.getNextSeq());
+        log.release();
+    }
+
+    @Test
+    void reopenedLogContinuesSequence() throws IOException {
+        ChatHistoryLog log = new ChatHistoryLog(ROOM);
+        log.append(1, 1, "héllo");
+        log.append(2, 2, "world");
+        log.release();
+
+        ChatHistoryLog reopened = new ChatHistoryLog(ROOM);
+        assertEquals(3, reopened.getNextSeq());
+        assertEquals(log.getSizeBytes(), reopened.getSizeBytes());
+        assertEquals("héllo", reopened.read(1, 2).get(0).text());
+        reopened.release();
+    }
+
+    @Test
+    void tornTailIsTruncatedOnOpen() throws IOException {
+        ChatHistoryLog log = new ChatHistoryLog(ROOM);
+        for (long seq = 1; seq <= 3; seq++) {
+            log.append(seq, seq, "message " + seq);
+        }
+        long validBytes = log.getSizeBytes();
+        log.release();
+
+        // A crash mid-write leaves a header promising more text than was written
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            ByteBuffer torn = ByteBuffer.allocate(24);
+            torn.putInt(100).putLong(4).putLong(4).flip();
+            channel.write(torn);
+            channel.write(ByteBuffer.wrap("partial".getBytes()));
+        }
+
+        ChatHistoryLog recovered = new ChatHistoryLog(ROOM);
+        assertEquals(4, recovered.getNextSeq());
+        assertEquals(validBytes, recovered.getSizeBytes());
+        assertEquals(validBytes, Files.size(segment));
+
+        recovered.append(4, 4, "after crash");
+        List<ChatHistoryLog.HistoryEntry> entries = recovered.read(1, 5);
+        assertEquals(4, entries.size());
+        assertEquals("after crash", entries.get(3).text());
+        recovered.release();
+    }
+
+    @Test
+    void readsAcrossSegments() throws IOException {
+        ChatHistoryLog log = new ChatHistoryLog(ROOM);
+        String large = "x".repeat(400 * 1024);
+        for (long seq = 1; seq <= 6; seq++) {
+            log.append(seq, seq, seq + large);
+        }
+        log.release();
+
+        try (Stream<Path> files = Files.list(roomDirectory())) {
+            assertTrue(files.count() > 1);
+        }
+        List<ChatHistoryLog.HistoryEntry> entries = new ChatHistoryLog(ROOM).read(2, 6);
+        assertEquals(4, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(i + 2, entries.get(i).seq());
+            assertTrue(entries.get(i).text().startsWith(String.valueOf(i + 2)));
+        }
+    }
+
+    private Path roomDirectory() throws IOException {
+        try (Stream<Path> dirs = Files.list(historyDir)) {
+            return dirs.findFirst().orElseThrow();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(roomDirectory())) {
+            return files.findFirst().orElseThrow();
+        }
+    }
+}
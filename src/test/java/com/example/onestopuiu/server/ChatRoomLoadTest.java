@@ -0,0 +1,194 @@
+package com.example.onestopuiu.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives {@link ChatRoom#broadcast} from several publisher threads across 1, 10 and 1000
+ * rooms, with in-process connections that only count what they are sent, and prints the
+ * throughput at each size. Also checks that a room whose lock is held doesn't hold up others.
+ */
+class ChatRoomLoadTest {
+    private static final int[] ROOM_COUNTS = {1, 10, 1000};
+    private static final int MEMBERS_PER_ROOM = 5;
+    private static final int PUBLISHERS = 8;
+    private static final int MESSAGES = 20_000;
+
+    @TempDir
+    Path historyDir;
+
+    @BeforeEach
+    void useTempDir() {
+        System.setProperty("chat.history.dir", historyDir.toString());
+    }
+
+    @AfterEach
+    void clearTempDir() {
+        System.clearProperty("chat.history.dir");
+    }
+
+    @Test
+    void fanOutAcrossRoomCounts() throws Exception {
+        System.out.printf("%-6s %12s %14s %8s%n", "rooms", "messages/s", "deliveries/s", "ms");
+        for (int roomCount : ROOM_COUNTS) {
+            List<ChatRoom> rooms = new ArrayList<>();
+            List<List<CountingConnection>> members = new ArrayList<>();
+            for (int r = 0; r < roomCount; r++) {
+                ChatRoom room = new ChatRoom("load-" + roomCount + "-" + r);
+                List<CountingConnection> roomMembers = new ArrayList<>();
+                for (int m = 0; m < MEMBERS_PER_ROOM; m++) {
+                    CountingConnection connection = new CountingConnection("user" + m);
+                    room.join(connection, 0);
+                    roomMembers.add(connection);
+                }
+                rooms.add(room);
+                members.add(roomMembers);
+            }
+
+            long elapsedNanos = publish(rooms);
+
+            // Messages are spread round-robin, so each room gets its share of MESSAGES
+            for (int r = 0; r < roomCount; r++) {
+                long expected = MESSAGES / roomCount + (r < MESSAGES % roomCount ? 1 : 0);
+                for (CountingConnection connection : members.get(r)) {
+                    assertEquals(expected, connection.messages, "messages delivered in room " + r);
+                    assertTrue(connection.inOrder, "messages out of order in room " + r);
+                }
+            }
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("%-6d %12.0f %14.0f %8d%n", roomCount, MESSAGES / seconds,
+                    MESSAGES * (double) MEMBERS_PER_ROOM / seconds, elapsedNanos / 1_000_000);
+
+            for (int r = 0; r < roomCount; r++) {
+                rooms.get(r).flushHistory();
+                for (CountingConnection connection : members.get(r)) {
+                    rooms.get(r).leave(connection);
+                }
+            }
+        }
+    }
+
+    @Test
+    void heldRoomDoesNotBlockOtherRooms() throws Exception {
+        ChatRoom stuck = new ChatRoom("stuck");
+        ChatRoom busy = new ChatRoom("busy");
+        CountingConnection member = new CountingConnection("user");
+        busy.join(member, 0);
+
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (stuck) {
+                held.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        holder.start();
+        try {
+            assertTrue(held.await(5, TimeUnit.SECONDS));
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<?> sent = executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        busy.broadcast("message " + i);
+                    }
+                });
+                sent.get(10, TimeUnit.SECONDS);
+            } finally {
+                executor.shutdownNow();
+            }
+            assertEquals(1000, member.messages);
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+        busy.flushHistory();
+        busy.leave(member);
+    }
+
+    // Round-robins MESSAGES broadcasts over the rooms from PUBLISHERS threads; returns the elapsed time
+    private static long publish(List<ChatRoom> rooms) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PUBLISHERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < PUBLISHERS; p++) {
+                int publisher = p;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = publisher; i < MESSAGES; i += PUBLISHERS) {
+                        rooms.get(i % rooms.size()).broadcast("message " + i);
+                    }
+                    return null;
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+            return System.nanoTime() - started;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // A binary client that decodes each frame it is sent and counts the chat messages
+    private static final class CountingConnection implements ChatConnection {
+        private final String username;
+        private long lastSeq;
+        volatile long messages;
+        volatile boolean inOrder = true;
+
+        CountingConnection(String username) {
+            this.username = username;
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public boolean isBinary() {
+            return true;
+        }
+
+        @Override
+        public synchronized void send(OutboundMessage message) {
+            ByteBuffer frame = message.encoded(true);
+            frame.getInt();
+            if (frame.get() == OutboundMessage.TYPE_MESSAGE) {
+                long seq = frame.getLong();
+                if (seq <= lastSeq) {
+                    inOrder = false;
+                }
+                lastSeq = seq;
+                messages++;
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
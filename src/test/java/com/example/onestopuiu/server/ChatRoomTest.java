@@ -0,0 +1,149 @@
+package com.example.onestopuiu.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatRoomTest {
+    @TempDir
+    Path historyDir;
+
+    @BeforeEach
+    void useTempDir() {
+        System.setProperty("chat.history.dir", historyDir.toString());
+    }
+
+    @AfterEach
+    void clearTempDir() {
+        System.clearProperty("chat.history.dir");
+    }
+
+    @Test
+    void historyIsOpenedOnFirstUseNotOnConstruction() throws IOException {
+        ChatRoom room = new ChatRoom("lazy");
+        assertEquals(0, entriesIn(historyDir));
+
+        RecordingConnection member = new RecordingConnection();
+        room.join(member, 0);
+        assertEquals(1, entriesIn(historyDir));
+        room.leave(member);
+    }
+
+    @Test
+    void queuedMessagesReachTheLog() {
+        ChatRoom room = new ChatRoom("persisted");
+        RecordingConnection member = new RecordingConnection();
+        room.join(member, 0);
+        for (int i = 1; i <= 500; i++) {
+            room.broadcast("message " + i);
+        }
+        room.flushHistory();
+        room.leave(member);
+
+        ChatRoom reopened = new ChatRoom("persisted");
+        assertEquals(500, reopened.getHistorySize());
+        RecordingConnection next = new RecordingConnection();
+        reopened.sendHistory(next, 11, 10);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), next.seqs(OutboundMessage.TYPE_HISTORY));
+        reopened.flushHistory();
+    }
+
+    @Test
+    void historyPageIncludesMessagesStillQueued() {
+        ChatRoom room = new ChatRoom("paging");
+        RecordingConnection member = new RecordingConnection();
+        room.join(member, 0);
+        for (int i = 1; i <= 500; i++) {
+            room.broadcast("message " + i);
+        }
+
+        // Older than the ring, so served from the log whether or not the writer caught up
+        RecordingConnection reader = new RecordingConnection();
+        room.sendHistory(reader, 100, 50);
+        List<Long> expected = new ArrayList<>();
+        for (long seq = 50; seq < 100; seq++) {
+            expected.add(seq);
+        }
+        assertEquals(expected, reader.seqs(OutboundMessage.TYPE_HISTORY));
+
+        room.flushHistory();
+        room.leave(member);
+    }
+
+    @Test
+    void messagesAreNumberedInOrderForEveryMember() {
+        ChatRoom room = new ChatRoom("ordered");
+        RecordingConnection first = new RecordingConnection();
+        RecordingConnection second = new RecordingConnection();
+        room.join(first, 0);
+        room.join(second, 0);
+        for (int i = 0; i < 100; i++) {
+            room.broadcast("message " + i);
+        }
+
+        List<Long> expected = new ArrayList<>();
+        for (long seq = 1; seq <= 100; seq++) {
+            expected.add(seq);
+        }
+        assertEquals(expected, first.seqs(OutboundMessage.TYPE_MESSAGE));
+        assertEquals(expected, second.seqs(OutboundMessage.TYPE_MESSAGE));
+        room.flushHistory();
+        room.leave(first);
+        room.leave(second);
+    }
+
+    private static long entriesIn(Path directory) throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.count();
+        }
+    }
+
+    // A binary client that keeps the type and sequence number of every frame it is sent
+    private static final class RecordingConnection implements ChatConnection {
+        private final List<long[]> frames = new ArrayList<>();
+
+        synchronized List<Long> seqs(byte type) {
+            List<Long> seqs = new ArrayList<>();
+            for (long[] frame : frames) {
+                if (frame[0] == type) {
+                    seqs.add(frame[1]);
+                }
+            }
+            return seqs;
+        }
+
+        @Override
+        public String getUsername() {
+            return "user";
+        }
+
+        @Override
+        public boolean isBinary() {
+            return true;
+        }
+
+        @Override
+        public synchronized void send(OutboundMessage message) {
+            ByteBuffer frame = message.encoded(true);
+            frame.getInt();
+            byte type = frame.get();
+            frames.add(new long[]{type, frame.getLong()});
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.onestopuiu.server;
+
+import com.example.onestopuiu.util.VirtualThreads;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Opens N idle clients against a ChatServer process in each mode (threaded, virtual, nio)
+ * and reports how long they took to join and the server's thread count and resident memory
+ * while holding them. Each mode runs in its own JVM, started from the module path the tests
+ * run with. Server figures come from /proc, so they are only reported on Linux. The virtual
+ * mode is skipped on runtimes older than Java 21. Not part of the default test run:
+ * <pre>mvn test -Dtest=ChatServerIdleBenchmark -Dbenchmark.clients=5000</pre>
+ * Raise the open file limit when going much beyond the default of 2000 clients.
+ */
+class ChatServerIdleBenchmark {
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 2000);
+    // Keeps each room's join announcements small
+    private static final int CLIENTS_PER_ROOM = 10;
+
+    @TempDir
+    Path historyDir;
+
+    @Test
+    void idleClientsPerMode() throws Exception {
+        String modulePath = System.getProperty("jdk.module.path");
+        assumeTrue(modulePath != null, "needs the application on the module path");
+
+        System.out.printf("%-9s %8s %10s %12s %10s%n", "mode", "clients", "join ms", "threads", "RSS MB");
+        for (String mode : new String[]{"threaded", "virtual", "nio"}) {
+            if ("virtual".equals(mode) && !VirtualThreads.isSupported()) {
+                System.out.printf("%-9s skipped: virtual threads need Java 21%n", mode);
+                continue;
+            }
+            run(modulePath, mode);
+        }
+    }
+
+    private void run(String modulePath, String mode) throws Exception {
+        int port = freePort();
+        Process server = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Dchat.port=" + port,
+                "-Dchat.stats.port=0",
+                "-Dchat.history.dir=" + historyDir.resolve(mode),
+                "-p", modulePath,
+                "-m", "com.example.onestopuiu/com.example.onestopuiu.server.ChatServer", mode)
+                .redirectErrorStream(true)
+                .start();
+        List<Socket> clients = new ArrayList<>();
+        try {
+            awaitRunning(server, port);
+
+            long started = System.nanoTime();
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.add(join(port, i));
+            }
+            long joinMs = (System.nanoTime() - started) / 1_000_000;
+            // Let the server settle, e.g. writer threads parking after the join announcements
+            Thread.sleep(1000);
+
+            String threads = procStatus(server, "Threads");
+            String rss = procStatus(server, "VmRSS");
+            System.out.printf("%-9s %8d %10d %12s %10s%n", mode, CLIENTS, joinMs, threads,
+                    rss.equals("n/a") ? rss : String.valueOf(Long.parseLong(rss.split("\\s+")[0]) / 1024));
+            assertTrue(server.isAlive(), mode + " server died holding " + CLIENTS + " clients");
+        } finally {
+            for (Socket client : clients) {
+                client.close();
+            }
+            server.destroy();
+            server.waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+
+    // Joins room idle-(i / CLIENTS_PER_ROOM) and waits for NAME_ACCEPTED, then leaves the socket idle
+    private static Socket join(int port, int i) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+        writer.println("user" + i + "::idle-" + (i / CLIENTS_PER_ROOM));
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        assertEquals("NAME_ACCEPTED", in.readLine());
+        return socket;
+    }
+
+    // Waits until the port accepts connections, draining the output so the server never blocks on it
+    private static void awaitRunning(Process server, int port) throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        Thread drain = new Thread(() -> {
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(server.getInputStream()))) {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    if (line.contains("is running")) {
+                        running.countDown();
+                    }
+                }
+            } catch (IOException e) {
+                // Server exited
+            }
+        }, "chat-server-output");
+        drain.setDaemon(true);
+        drain.start();
+        assertTrue(running.await(30, TimeUnit.SECONDS), "chat server did not start");
+
+        // The banner is printed just before the listener is bound
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            try (Socket probe = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                return;
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new AssertionError("chat server is not accepting connections on " + port, e);
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    private static String procStatus(Process process, String field) throws IOException {
+        Path status = Paths.get("/proc", String.valueOf(process.pid()), "status");
+        if (!Files.exists(status)) {
+            return "n/a";
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith(field + ":")) {
+                return line.substring(field.length() + 1).trim();
+            }
+        }
+        return "n/a";
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.onestopuiu.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+    private static final int ROOMS = 30_000;
+    private static final List<String> NODES = List.of("10.0.0.1:5555", "10.0.0.2:5555", "10.0.0.3:5555");
+
+    @Test
+    void emptyRingHasNoOwner() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of());
+        assertTrue(ring.isEmpty());
+        assertNull(ring.ownerOf("room"));
+    }
+
+    @Test
+    void roomsSpreadEvenlyAcrossNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < ROOMS; i++) {
+            counts.merge(ring.ownerOf("room-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(NODES.size(), counts.size());
+        for (int count : counts.values()) {
+            double share = (double) count / ROOMS;
+            assertTrue(share > 0.25 && share < 0.42, "unbalanced share " + share);
+        }
+    }
+
+    @Test
+    void ownershipDoesNotDependOnNodeOrder() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES);
+        ConsistentHashRing reversed = new ConsistentHashRing(List.of(NODES.get(2), NODES.get(1), NODES.get(0)));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ring.ownerOf("room-" + i), reversed.ownerOf("room-" + i));
+        }
+    }
+
+    @Test
+    void joiningNodeOnlyTakesRoomsForItself() {
+        String joined = "10.0.0.4:5555";
+        ConsistentHashRing before = new ConsistentHashRing(NODES);
+        ConsistentHashRing after = new ConsistentHashRing(List.of(NODES.get(0), NODES.get(1), NODES.get(2), joined));
+
+        int moved = 0;
+        for (int i = 0; i < ROOMS; i++) {
+            String room = "room-" + i;
+            String owner = after.ownerOf(room);
+            if (!owner.equals(before.ownerOf(room))) {
+                assertEquals(joined, owner);
+                moved++;
+            }
+        }
+        double share = (double) moved / ROOMS;
+        assertTrue(share > 0.15 && share < 0.35, "moved share " + share);
+    }
+
+    @Test
+    void leavingNodeOnlyReleasesItsOwnRooms() {
+        String left = NODES.get(1);
+        ConsistentHashRing before = new ConsistentHashRing(NODES);
+        ConsistentHashRing after = new ConsistentHashRing(List.of(NODES.get(0), NODES.get(2)));
+
+        for (int i = 0; i < ROOMS; i++) {
+            String room = "room-" + i;
+            String owner = before.ownerOf(room);
+            if (!owner.equals(left)) {
+                assertEquals(owner, after.ownerOf(room));
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.onestopuiu.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboundQueueTest {
+
+    @Test
+    void dropOldestKeepsNewestMessages() {
+        OutboundQueue<String> queue = newQueue(SlowConsumerPolicy.DROP_OLDEST);
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(queue.offer("m" + i));
+        }
+
+        assertEquals(List.of("m3", "m4", "m5"), drain(queue));
+    }
+
+    @Test
+    void coalesceReplacesBacklogWithOneNotice() {
+        OutboundQueue<String> queue = newQueue(SlowConsumerPolicy.COALESCE);
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(queue.offer("m" + i));
+        }
+
+        assertEquals(List.of("skipped 3", "m4"), drain(queue));
+    }
+
+    @Test
+    void coalesceAccumulatesWhileNoticeIsQueued() {
+        OutboundQueue<String> queue = newQueue(SlowConsumerPolicy.COALESCE);
+        for (int i = 1; i <= 7; i++) {
+            queue.offer("m" + i);
+        }
+
+        // The first overflow skips m1-m3; the second skips m4 and m5 on top of that
+        assertEquals(List.of("skipped 5", "m6", "m7"), drain(queue));
+    }
+
+    @Test
+    void skippedCountResetsOnceNoticeIsDelivered() {
+        OutboundQueue<String> queue = newQueue(SlowConsumerPolicy.COALESCE);
+        for (int i = 1; i <= 4; i++) {
+            queue.offer("m" + i);
+        }
+        drain(queue);
+        for (int i = 5; i <= 8; i++) {
+            queue.offer("m" + i);
+        }
+
+        assertEquals(List.of("skipped 3", "m8"), drain(queue));
+    }
+
+    @Test
+    void coalesceKeepsProtocolLinesInOrder() {
+        OutboundQueue<String> queue = newQueue(SlowConsumerPolicy.COALESCE);
+        queue.offer("NAME_ACCEPTED", false);
+        queue.offer("m1");
+        queue.offer("m2");
+        assertTrue(queue.offer("HISTORY_END", false));
+
+        assertEquals(List.of("NAME_ACCEPTED", "skipped 2", "HISTORY_END"), drain(queue));
+    }
+
+    @Test
+    void coalesceNeverFoldsHistoryPages() {
+        OutboundQueue<String> queue = newQueue(SlowConsumerPolicy.COALESCE);
+        queue.offer("m1");
+        queue.offer("HISTORY 1 h1", false);
+        queue.offer("HISTORY 2 h2", false);
+        assertTrue(queue.offer("m2"));
+
+        assertEquals(List.of("skipped 1", "HISTORY 1 h1", "HISTORY 2 h2", "m2"), drain(queue));
+    }
+
+    @Test
+    void messageIsSkippedWhenOnlyProtocolLinesAndNoticeAreQueued() {
+        OutboundQueue<String> queue = newQueue(SlowConsumerPolicy.COALESCE);
+        queue.offer("RESUMED 7", false);
+        queue.offer("m1");
+        queue.offer("m2");
+        queue.offer("NAME_ACCEPTED", false);
+
+        assertTrue(queue.offer("m3"));
+        assertEquals(List.of("RESUMED 7", "skipped 3", "NAME_ACCEPTED"), drain(queue));
+    }
+
+    @Test
+    void coalesceDisconnectsWhenNothingCanBeFolded() {
+        OutboundQueue<String> queue = newQueue(SlowConsumerPolicy.COALESCE);
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(queue.offer("HISTORY " + i + " h" + i, false));
+        }
+
+        assertFalse(queue.offer("HISTORY_END", false));
+        assertFalse(queue.offer("m1"));
+    }
+
+    @Test
+    void disconnectRefusesWhenFull() {
+        OutboundQueue<String> queue = newQueue(SlowConsumerPolicy.DISCONNECT);
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(queue.offer("m" + i));
+        }
+
+        assertFalse(queue.offer("m4"));
+        assertEquals(List.of("m1", "m2", "m3"), drain(queue));
+    }
+
+    @Test
+    void closedQueueDrainsThenEnds() throws InterruptedException {
+        OutboundQueue<String> queue = newQueue(SlowConsumerPolicy.DISCONNECT);
+        queue.offer("m1");
+        queue.close();
+
+        assertTrue(queue.offer("ignored"));
+        assertEquals("m1", queue.take());
+        assertNull(queue.take());
+    }
+
+    @Test
+    void discardDropsQueuedMessages() {
+        OutboundQueue<String> queue = newQueue(SlowConsumerPolicy.COALESCE);
+        queue.offer("m1");
+        queue.offer("m2");
+        queue.discard();
+
+        assertEquals(0, queue.size());
+        assertNull(queue.poll());
+    }
+
+    private static OutboundQueue<String> newQueue(SlowConsumerPolicy policy) {
+        return new OutboundQueue<>(3, policy, count -> "skipped " + count);
+    }
+
+    private static List<String> drain(OutboundQueue<String> queue) {
+        List<String> items = new ArrayList<>();
+        String item;
+        while ((item = queue.poll()) != null) {
+            items.add(item);
+        }
+        return items;
+    }
+}
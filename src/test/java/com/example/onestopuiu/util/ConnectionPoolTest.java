@@ -0,0 +1,291 @@
+package com.example.onestopuiu.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+    private static final String URL = "jdbc:poolfake:test";
+    private static final List<FakeConnection> opened = new CopyOnWriteArrayList<>();
+
+    private ConnectionPool pool;
+
+    @BeforeAll
+    static void registerDriver() throws SQLException {
+        DriverManager.registerDriver(new FakeDriver());
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        opened.clear();
+    }
+
+    @Test
+    void closeReturnsConnectionForReuse() throws SQLException {
+        pool = newPool(2, 1000);
+        Connection first = pool.borrow();
+        assertEquals(1, pool.getActiveCount());
+        first.close();
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+
+        try (Connection second = pool.borrow()) {
+            assertNotNull(second);
+        }
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1, opened.size());
+        assertFalse(opened.get(0).closed);
+    }
+
+    @Test
+    void exhaustedPoolTimesOut() throws SQLException {
+        pool = newPool(1, 100);
+        try (Connection held = pool.borrow()) {
+            assertThrows(SQLTimeoutException.class, pool::borrow);
+        }
+        assertEquals(1, pool.getTimeoutCount());
+    }
+
+    @Test
+    void waitingBorrowerGetsReleasedConnection() throws Exception {
+        pool = newPool(1, 5000);
+        Connection held = pool.borrow();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Connection> waiting = executor.submit(pool::borrow);
+            while (pool.getWaitingThreads() == 0) {
+                Thread.sleep(5);
+            }
+            held.close();
+            Connection next = waiting.get(5, TimeUnit.SECONDS);
+            assertNotNull(next);
+            next.close();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    void doubleCloseReleasesOnlyOnce() throws SQLException {
+        pool = newPool(1, 100);
+        Connection first = pool.borrow();
+        first.close();
+        first.close();
+
+        Connection second = pool.borrow();
+        assertThrows(SQLTimeoutException.class, pool::borrow);
+        second.close();
+    }
+
+    @Test
+    void returnedHandleCannotBeUsed() throws SQLException {
+        pool = newPool(1, 1000);
+        Connection connection = pool.borrow();
+        connection.close();
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, connection::createStatement);
+    }
+
+    @Test
+    void openTransactionIsRolledBackOnRelease() throws SQLException {
+        pool = newPool(1, 1000);
+        Connection connection = pool.borrow();
+        connection.setAutoCommit(false);
+        connection.close();
+
+        FakeConnection physical = opened.get(0);
+        assertEquals(1, physical.rollbacks);
+        assertTrue(physical.autoCommit);
+    }
+
+    @Test
+    void shutdownClosesIdleConnections() throws SQLException {
+        pool = newPool(2, 1000);
+        pool.borrow().close();
+        pool.shutdown();
+        assertTrue(opened.get(0).closed);
+        assertThrows(SQLException.class, pool::borrow);
+    }
+
+    @Test
+    void statementsLeftOpenAreClosedOnRelease() throws SQLException {
+        pool = newPool(1, 1000);
+        Connection connection = pool.borrow();
+        Statement prepared = connection.prepareStatement("SELECT 1");
+        Statement plain = connection.createStatement();
+        connection.close();
+
+        assertTrue(prepared.isClosed());
+        assertTrue(plain.isClosed());
+    }
+
+    @Test
+    void namedLocksAreReleasedBeforeReuse() throws SQLException {
+        pool = newPool(1, 1000);
+        Connection connection = pool.borrow();
+        connection.prepareStatement("SELECT GET_LOCK(?, ?)");
+        connection.close();
+
+        FakeConnection physical = opened.get(0);
+        assertEquals(List.of("SELECT RELEASE_ALL_LOCKS()"), physical.executed);
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void borrowWithoutLocksSkipsTheReleaseRoundTrip() throws SQLException {
+        pool = newPool(1, 1000);
+        Connection connection = pool.borrow();
+        connection.prepareStatement("SELECT * FROM food_items");
+        connection.close();
+
+        assertTrue(opened.get(0).executed.isEmpty());
+    }
+
+    @Test
+    void connectionIsDiscardedWhenLocksCannotBeReleased() throws SQLException {
+        pool = newPool(1, 1000);
+        Connection connection = pool.borrow();
+        opened.get(0).failLockRelease = true;
+        connection.prepareStatement("SELECT GET_LOCK(?, ?)");
+        connection.close();
+
+        // Closing the session is what finally drops its locks
+        assertTrue(opened.get(0).closed);
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    private static ConnectionPool newPool(int maxSize, long connectionTimeoutMs) {
+        return new ConnectionPool(URL, "user", "password", maxSize, connectionTimeoutMs,
+                60_000, 60_000, 60_000, 1);
+    }
+
+    // State of one physical connection handed out by the fake driver
+    private static final class FakeConnection {
+        final List<String> executed = new ArrayList<>();
+        boolean closed;
+        boolean autoCommit = true;
+        boolean failLockRelease;
+        int rollbacks;
+
+        Statement statement() {
+            boolean[] statementClosed = {false};
+            return (Statement) Proxy.newProxyInstance(ConnectionPoolTest.class.getClassLoader(),
+                    new Class<?>[]{java.sql.PreparedStatement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                statementClosed[0] = true;
+                                return null;
+                            case "isClosed":
+                                return statementClosed[0];
+                            case "execute":
+                                if (failLockRelease) {
+                                    throw new SQLException("lock release failed");
+                                }
+                                executed.add((String) args[0]);
+                                return true;
+                            default:
+                                throw new SQLFeatureNotSupportedException(method.getName());
+                        }
+                    });
+        }
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPoolTest.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                closed = true;
+                                return null;
+                            case "isClosed":
+                                return closed;
+                            case "isValid":
+                                return !closed;
+                            case "getAutoCommit":
+                                return autoCommit;
+                            case "setAutoCommit":
+                                autoCommit = (Boolean) args[0];
+                                return null;
+                            case "rollback":
+                                rollbacks++;
+                                return null;
+                            case "createStatement":
+                            case "prepareStatement":
+                                return statement();
+                            default:
+                                throw new SQLFeatureNotSupportedException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    private static final class FakeDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            FakeConnection connection = new FakeConnection();
+            opened.add(connection);
+            return connection.proxy();
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:poolfake:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+}
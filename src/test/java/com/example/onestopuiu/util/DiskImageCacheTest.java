@@ -0,0 +1,160 @@
+package com.example.onestopuiu.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs DiskImageCache against a local HTTP server that serves one image with an ETag
+ * and answers a matching If-None-Match with 304.
+ */
+class DiskImageCacheTest {
+    private static final byte[] IMAGE = "not really a png".getBytes(StandardCharsets.UTF_8);
+    private static final String ETAG = "\"v1\"";
+
+    @TempDir
+    Path cacheDir;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    // If-None-Match of every request the server received, or null when there was none
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch respond = new CountDownLatch(0);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/food.png", this::serveImage);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void coldFetchDownloadsAndStoresValidators() throws IOException {
+        DiskImageCache cache = new DiskImageCache(cacheDir, TimeUnit.HOURS.toMillis(24));
+
+        Path file = cache.fetch(url());
+
+        assertArrayEquals(IMAGE, Files.readAllBytes(file));
+        assertEquals(1, requests.size());
+        assertNull(requests.get(0));
+        assertEquals(IMAGE.length, cache.getTotalBytes());
+
+        // Fresh enough, so served from disk without asking the server again
+        assertEquals(file, cache.fetch(url()));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void staleEntryIsRevalidatedWithItsETag() throws Exception {
+        DiskImageCache cache = new DiskImageCache(cacheDir, 0);
+        Path file = cache.fetch(url());
+        Path meta = metadataOf(file);
+        String firstMetadata = Files.readString(meta);
+
+        // Every entry is stale with a zero interval: served at once, revalidated in the background
+        assertEquals(file, cache.fetch(url()));
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((requests.size() < 2 || Files.readString(meta).equals(firstMetadata))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(2, requests.size());
+        assertEquals(ETAG, requests.get(1));
+        assertTrue(Files.readString(meta).contains("etag=\"v1\""), "validators kept after a 304");
+        assertArrayEquals(IMAGE, Files.readAllBytes(file));
+        assertEquals(IMAGE.length, cache.getTotalBytes());
+    }
+
+    @Test
+    void concurrentColdFetchesShareOneDownload() throws Exception {
+        DiskImageCache cache = new DiskImageCache(cacheDir, TimeUnit.HOURS.toMillis(24));
+        respond = new CountDownLatch(1);
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Path>> fetches = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                fetches.add(executor.submit(() -> cache.fetch(url())));
+            }
+            // Hold the first download until the other callers have had time to queue behind it
+            long deadline = System.currentTimeMillis() + 5000;
+            while (requests.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            respond.countDown();
+
+            for (Future<Path> fetch : fetches) {
+                assertArrayEquals(IMAGE, Files.readAllBytes(fetch.get(10, TimeUnit.SECONDS)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, requests.size());
+        try (var temps = Files.list(cacheDir)) {
+            assertTrue(temps.noneMatch(path -> path.toString().endsWith(".tmp")));
+        }
+    }
+
+    private void serveImage(HttpExchange exchange) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        requests.add(ifNoneMatch);
+        try {
+            respond.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.getResponseHeaders().set("ETag", ETAG);
+        if (ETAG.equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, IMAGE.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(IMAGE);
+        }
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/food.png";
+    }
+
+    private static Path metadataOf(Path data) {
+        String name = data.getFileName().toString();
+        return data.resolveSibling(name.substring(0, name.length() - ".img".length()) + ".meta");
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.onestopuiu.util;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ImageCacheTest {
+    private static final String URL = "https://example.com/food.png";
+
+    @AfterEach
+    void reset() {
+        ImageCache.clearCache();
+        ImageCache.setMaxBytes(64L * 1024 * 1024);
+    }
+
+    @Test
+    void cachedBytesStayWithinBudget() {
+        // Each 10x10 image is estimated at 400 bytes
+        ImageCache.setMaxBytes(1200);
+        long evictionsBefore = ImageCache.getEvictionCount();
+        for (int i = 0; i < 5; i++) {
+            ImageCache.store(key(URL + i, 10, 10), new WritableImage(10, 10));
+        }
+
+        assertEquals(3, ImageCache.getEntryCount());
+        assertEquals(1200, ImageCache.getCachedBytes());
+        assertEquals(2, ImageCache.getEvictionCount() - evictionsBefore);
+    }
+
+    @Test
+    void leastRecentlyUsedImageIsEvictedFirst() {
+        ImageCache.setMaxBytes(1300);
+        ImageCache.store(key("a", 10, 10), new WritableImage(10, 10));
+        ImageCache.store(key("b", 20, 10), new WritableImage(20, 10));
+        ImageCache.lookup(key("a", 10, 10));
+        ImageCache.store(key("c", 10, 10), new WritableImage(10, 10));
+
+        // b (800 bytes) was the least recently used; evicting a instead would leave 1200
+        assertEquals(2, ImageCache.getEntryCount());
+        assertEquals(800, ImageCache.getCachedBytes());
+    }
+
+    @Test
+    void mostRecentImageIsKeptEvenOverBudget() {
+        ImageCache.setMaxBytes(100);
+        ImageCache.store(key(URL, 10, 10), new WritableImage(10, 10));
+
+        assertEquals(1, ImageCache.getEntryCount());
+        assertEquals(400, ImageCache.getCachedBytes());
+    }
+
+    @Test
+    void shrinkingBudgetEvictsImmediately() {
+        for (int i = 0; i < 4; i++) {
+            ImageCache.store(key(URL + i, 10, 10), new WritableImage(10, 10));
+        }
+        ImageCache.setMaxBytes(800);
+
+        assertEquals(2, ImageCache.getEntryCount());
+        assertEquals(800, ImageCache.getCachedBytes());
+    }
+
+    @Test
+    void replacingAnEntryDoesNotDoubleCount() {
+        ImageCache.store(key(URL, 10, 10), new WritableImage(10, 10));
+        ImageCache.store(key(URL, 10, 10), new WritableImage(10, 10));
+
+        assertEquals(1, ImageCache.getEntryCount());
+        assertEquals(400, ImageCache.getCachedBytes());
+    }
+
+    @Test
+    void largerDecodeServesSmallerRequest() {
+        Image large = new WritableImage(200, 100);
+        ImageCache.store(key(URL, 200, 100), large);
+
+        assertSame(large, ImageCache.lookup(key(URL, 100, 50)));
+        assertNull(ImageCache.lookup(key(URL, 300, 100)));
+        assertNull(ImageCache.lookup(key(URL, 0, 0)));
+    }
+
+    @Test
+    void evictedImageIsRecoveredWhileStillReachable() {
+        Image first = new WritableImage(10, 10);
+        ImageCache.setMaxBytes(400);
+        ImageCache.store(key("a", 10, 10), first);
+        ImageCache.store(key("b", 10, 10), new WritableImage(10, 10));
+
+        // Still strongly held here, so the soft reference can't have been cleared
+        assertSame(first, ImageCache.lookup(key("a", 10, 10)));
+        assertEquals(1, ImageCache.getEntryCount());
+    }
+
+    private static ImageCache.ImageKey key(String url, int width, int height) {
+        return new ImageCache.ImageKey(url, width, height);
+    }
+}
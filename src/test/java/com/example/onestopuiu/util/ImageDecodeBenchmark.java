@@ -0,0 +1,128 @@
+package com.example.onestopuiu.util;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Decodes every image in the uploads directory at full resolution, at the 300x200 detail
+ * size and at the 180x120 grid card size, the way ImageCache loads them, and reports decode
+ * time, decoded bitmap bytes and the heap retained by each set. Also checks that a card
+ * request is served from the cached detail decode instead of a second bitmap.
+ * Decoding needs the JavaFX toolkit, so it is skipped where no display is available.
+ * Not part of the default test run:
+ * <pre>mvn test -Dtest=ImageDecodeBenchmark</pre>
+ */
+class ImageDecodeBenchmark {
+    private static final Path UPLOADS = Paths.get(LocalImageUploader.getLocalPath("/com/example/onestopuiu/uploads/"));
+    private static final int ROUNDS = 5;
+
+    @BeforeAll
+    static void startToolkit() {
+        boolean started;
+        try {
+            Platform.startup(() -> {
+            });
+            started = true;
+        } catch (IllegalStateException e) {
+            // Already running in this JVM
+            started = true;
+        } catch (RuntimeException e) {
+            started = false;
+        }
+        assumeTrue(started, "JavaFX toolkit unavailable (no display)");
+    }
+
+    @Test
+    void decodeSizes() throws IOException {
+        List<Path> files = uploads();
+        assertFalse(files.isEmpty(), "no images in " + UPLOADS);
+
+        System.out.printf("%d images in %s%n", files.size(), UPLOADS);
+        System.out.printf("%-12s %14s %16s %16s%n", "size", "decode ms", "bitmap KB", "retained KB");
+        Result full = measure(files, 0, 0);
+        Result detail = measure(files, 300, 200);
+        Result card = measure(files, 180, 120);
+        print("full", full);
+        print("300x200", detail);
+        print("180x120", card);
+
+        assertTrue(detail.bitmapBytes < full.bitmapBytes);
+        assertTrue(card.bitmapBytes < detail.bitmapBytes);
+    }
+
+    @Test
+    void cardIsServedFromDetailDecode() throws IOException {
+        ImageCache.clearCache();
+        try {
+            Path file = uploads().get(0);
+            String url = file.toUri().toString();
+            Image detail = new Image(url, 300, 200, true, true, false);
+            ImageCache.store(new ImageCache.ImageKey(url, 300, 200), detail);
+
+            // One bitmap for both views
+            assertSame(detail, ImageCache.lookup(new ImageCache.ImageKey(url, 180, 120)));
+        } finally {
+            ImageCache.clearCache();
+        }
+    }
+
+    private static Result measure(List<Path> files, int width, int height) {
+        long decodeNanos = 0;
+        long bitmapBytes = 0;
+        long retained = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = usedHeap();
+            List<Image> kept = new ArrayList<>();
+            long started = System.nanoTime();
+            for (Path file : files) {
+                Image image = new Image(file.toUri().toString(), width, height, true, true, false);
+                assertFalse(image.isError(), "could not decode " + file);
+                kept.add(image);
+            }
+            // The first round warms up the decoder and isn't counted
+            if (round > 0) {
+                decodeNanos += System.nanoTime() - started;
+                retained += usedHeap() - before;
+            }
+            bitmapBytes = kept.stream()
+                    .mapToLong(image -> (long) image.getWidth() * (long) image.getHeight() * 4).sum();
+            kept.clear();
+        }
+        return new Result(decodeNanos / (ROUNDS - 1), bitmapBytes, retained / (ROUNDS - 1));
+    }
+
+    private static void print(String size, Result result) {
+        System.out.printf("%-12s %14.1f %16d %16d%n", size, result.decodeNanos / 1e6,
+                result.bitmapBytes / 1024, result.retainedBytes / 1024);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<Path> uploads() throws IOException {
+        try (Stream<Path> files = Files.list(UPLOADS)) {
+            return files.filter(file -> file.toString().matches("(?i).*\\.(jpe?g|png|gif|bmp)$")).sorted().toList();
+        }
+    }
+
+    private record Result(long decodeNanos, long bitmapBytes, long retainedBytes) {
+    }
+}
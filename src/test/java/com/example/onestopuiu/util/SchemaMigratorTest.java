@@ -0,0 +1,106 @@
+package com.example.onestopuiu.util;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the hot food order queries use an index on the migrated schema. Needs the
+ * application's MySQL database and is skipped when it can't be reached.
+ *
+ * One seeded customer gets thousands of orders, so that a lookup of the other seeded customer
+ * or item, or of the few pending orders, is selective enough that the optimizer only picks
+ * a full scan when the index is missing.
+ */
+class SchemaMigratorTest {
+    private static final int BUSY_ORDERS = 3000;
+
+    private static Connection conn;
+    private static int busyUserId;
+    private static int quietUserId;
+    private static int busyItemId;
+    private static int quietItemId;
+    private static int quietOrderId;
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        conn = TestDatabase.connectOrSkip();
+        busyUserId = TestDatabase.createUser(conn);
+        quietUserId = TestDatabase.createUser(conn);
+        busyItemId = TestDatabase.createFoodItem(conn, 100);
+        quietItemId = TestDatabase.createFoodItem(conn, 100);
+        TestDatabase.insertOrders(conn, busyUserId, busyItemId, BUSY_ORDERS, 100);
+        TestDatabase.insertOrders(conn, quietUserId, quietItemId, 5, 0);
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT MIN(id) FROM food_orders WHERE user_id = " + quietUserId)) {
+                rs.next();
+                quietOrderId = rs.getInt(1);
+            }
+            stmt.execute("ANALYZE TABLE food_orders, food_order_items");
+        }
+    }
+
+    @AfterAll
+    static void cleanUp() throws SQLException {
+        if (conn == null) {
+            return;
+        }
+        try {
+            TestDatabase.deleteUser(conn, busyUserId);
+            TestDatabase.deleteUser(conn, quietUserId);
+            TestDatabase.deleteFoodItem(conn, busyItemId);
+            TestDatabase.deleteFoodItem(conn, quietItemId);
+        } finally {
+            DatabaseConnection.closeConnection(conn);
+        }
+    }
+
+    @Test
+    void recordsEveryMigration() throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM schema_migrations WHERE version BETWEEN 1 AND 5")) {
+            assertTrue(rs.next());
+            assertEquals(5, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void pendingOrdersByTimeUseIndex() throws SQLException {
+        assertIndexed("SELECT id FROM food_orders WHERE status = 'pending' AND order_time < NOW()");
+    }
+
+    @Test
+    void customerOrdersUseIndex() throws SQLException {
+        assertIndexed("SELECT id FROM food_orders WHERE user_id = " + quietUserId + " ORDER BY order_time DESC");
+    }
+
+    @Test
+    void orderItemsByOrderUseIndex() throws SQLException {
+        assertIndexed("SELECT id FROM food_order_items WHERE order_id = " + quietOrderId);
+    }
+
+    @Test
+    void orderItemsByFoodItemUseIndex() throws SQLException {
+        assertIndexed("SELECT id FROM food_order_items WHERE food_item_id = " + quietItemId);
+    }
+
+    // Fails when the chosen plan is a full table scan, not just when no index is a candidate
+    private static void assertIndexed(String query) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN " + query)) {
+            assertTrue(rs.next());
+            assertNotEquals("ALL", rs.getString("type"), "Full table scan for: " + query);
+            assertNotNull(rs.getString("key"), "No index chosen for: " + query);
+        }
+    }
+}
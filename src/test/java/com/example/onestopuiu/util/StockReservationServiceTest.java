@@ -0,0 +1,369 @@
+package com.example.onestopuiu.util;
+
+import com.example.onestopuiu.dao.FoodItemDAO;
+import com.example.onestopuiu.model.FoodItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockReservationServiceTest {
+    private static final int THREADS = 16;
+    private static final int ITEM = 1;
+    private static final long TTL_MS = TimeUnit.MINUTES.toMillis(15);
+
+    private final FakeFoodItemDAO database = new FakeFoodItemDAO();
+    private StockReservationService service;
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void reservesWithinStock() {
+        StockReservationService.ItemStock item = new StockReservationService.ItemStock(5);
+        assertTrue(item.tryReserve(3));
+        assertFalse(item.tryReserve(3));
+        assertEquals(2, item.available());
+
+        item.release(1);
+        assertEquals(3, item.available());
+        item.commit(2);
+        assertEquals(3, item.available());
+    }
+
+    @Test
+    void restockMakesUnitsAvailableAgain() {
+        StockReservationService.ItemStock item = new StockReservationService.ItemStock(2);
+        assertTrue(item.tryReserve(2));
+        assertFalse(item.tryReserve(1));
+
+        item.setDbStock(10);
+        assertTrue(item.tryReserve(1));
+        assertEquals(7, item.available());
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        int stock = 1000;
+        StockReservationService.ItemStock item = new StockReservationService.ItemStock(stock);
+        AtomicInteger granted = new AtomicInteger();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 500; i++) {
+                if (item.tryReserve(1)) {
+                    granted.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(stock, granted.get());
+        assertEquals(0, item.available());
+    }
+
+    @Test
+    void concurrentReserveReleaseAndCommitKeepCountsConsistent() throws Exception {
+        int stock = 500;
+        StockReservationService.ItemStock item = new StockReservationService.ItemStock(stock);
+        AtomicInteger committed = new AtomicInteger();
+
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 2000; i++) {
+                int quantity = 1 + random.nextInt(3);
+                if (!item.tryReserve(quantity)) {
+                    continue;
+                }
+                assertTrue(item.available() >= 0);
+                if (random.nextInt(4) == 0) {
+                    item.commit(quantity);
+                    committed.addAndGet(quantity);
+                } else {
+                    item.release(quantity);
+                }
+            }
+        });
+
+        // Every reservation was settled, so whatever was not sold is available again
+        assertTrue(committed.get() <= stock);
+        assertEquals(stock - committed.get(), item.available());
+    }
+
+    @Test
+    void holdersCheckingOutTheSameItemNeverOversell() throws Exception {
+        int stock = 300;
+        database.setStock(ITEM, stock);
+        service = new StockReservationService(database, TTL_MS);
+        AtomicInteger sold = new AtomicInteger();
+
+        // Two threads share each holder, so checkouts also race reservations on the same cart
+        runConcurrently(thread -> {
+            String holder = "cart-" + (thread % (THREADS / 2));
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 200; i++) {
+                int quantity = 1 + random.nextInt(3);
+                if (!service.reserve(holder, ITEM, quantity)) {
+                    continue;
+                }
+                switch (random.nextInt(4)) {
+                    case 0 -> service.release(holder, ITEM, quantity);
+                    case 1 -> service.releaseAll(holder);
+                    default -> {
+                        try {
+                            service.checkout(holder, Map.of(ITEM, quantity), () -> database.placeOrder(ITEM, quantity));
+                            sold.addAndGet(quantity);
+                        } catch (SQLException e) {
+                            assertEquals("Insufficient stock to place this order", e.getMessage());
+                        }
+                    }
+                }
+            }
+        });
+
+        assertEquals(0, database.refusedOrders.get(), "an order got past the reservation it was placed against");
+        assertEquals(stock - sold.get(), database.stock(ITEM));
+        assertSettled();
+    }
+
+    @Test
+    void expiryRacingCheckoutNeverOversells() throws Exception {
+        int stock = 200;
+        database.setStock(ITEM, stock);
+        // Every hold is already due, so the sweeper can take it between reserve and checkout
+        service = new StockReservationService(database, 0);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sweeper = new Thread(() -> {
+            while (running.get()) {
+                service.expireHolds();
+            }
+        });
+        sweeper.start();
+
+        try {
+            runConcurrently(thread -> {
+                String holder = "cart-" + thread;
+                for (int i = 0; i < 200; i++) {
+                    if (!service.reserve(holder, ITEM, 1)) {
+                        continue;
+                    }
+                    try {
+                        service.checkout(holder, Map.of(ITEM, 1), () -> database.placeOrder(ITEM, 1));
+                        sold.incrementAndGet();
+                    } catch (SQLException e) {
+                        assertEquals("Insufficient stock to place this order", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            running.set(false);
+            sweeper.join();
+        }
+
+        assertEquals(0, database.refusedOrders.get());
+        assertEquals(stock - sold.get(), database.stock(ITEM));
+        service.expireHolds();
+        assertEquals(database.stock(ITEM), service.getAvailable(ITEM));
+    }
+
+    @Test
+    void checkoutReleasesUnitsBeyondTheOrder() throws Exception {
+        database.setStock(ITEM, 10);
+        service = new StockReservationService(database, TTL_MS);
+        assertTrue(service.reserve("cart-1", ITEM, 5));
+
+        service.checkout("cart-1", Map.of(ITEM, 3), () -> database.placeOrder(ITEM, 3));
+
+        assertEquals(7, database.stock(ITEM));
+        assertEquals(7, service.getAvailable(ITEM));
+        assertEquals(0, service.getReservedBy("cart-1", ITEM));
+    }
+
+    @Test
+    void checkoutReservesUnitsMissingFromTheHold() throws Exception {
+        database.setStock(ITEM, 10);
+        service = new StockReservationService(database, TTL_MS);
+        assertTrue(service.reserve("cart-1", ITEM, 2));
+        assertTrue(service.reserve("cart-2", ITEM, 4));
+
+        service.checkout("cart-1", Map.of(ITEM, 5), () -> database.placeOrder(ITEM, 5));
+        assertEquals(5, database.stock(ITEM));
+        assertEquals(1, service.getAvailable(ITEM));
+
+        // Not enough left to top the hold up: nothing is placed and the hold is untouched
+        assertThrows(SQLException.class,
+                () -> service.checkout("cart-2", Map.of(ITEM, 6), () -> database.placeOrder(ITEM, 6)));
+        assertEquals(4, service.getReservedBy("cart-2", ITEM));
+        assertEquals(1, service.getAvailable(ITEM));
+    }
+
+    @Test
+    void failedCheckoutKeepsTheReservation() throws Exception {
+        database.setStock(ITEM, 10);
+        service = new StockReservationService(database, TTL_MS);
+        assertTrue(service.reserve("cart-1", ITEM, 3));
+
+        assertThrows(SQLException.class, () -> service.checkout("cart-1", Map.of(ITEM, 3), () -> {
+            throw new SQLException("connection lost");
+        }));
+
+        assertEquals(3, service.getReservedBy("cart-1", ITEM));
+        assertEquals(7, service.getAvailable(ITEM));
+    }
+
+    @Test
+    void failedCheckoutFoldsIntoCartStartedMeanwhile() throws Exception {
+        database.setStock(ITEM, 10);
+        service = new StockReservationService(database, TTL_MS);
+        assertTrue(service.reserve("cart-1", ITEM, 3));
+
+        assertThrows(SQLException.class, () -> service.checkout("cart-1", Map.of(ITEM, 3), () -> {
+            // The customer keeps shopping while the order is being placed
+            assertTrue(service.reserve("cart-1", ITEM, 2));
+            throw new SQLException("connection lost");
+        }));
+
+        assertEquals(5, service.getReservedBy("cart-1", ITEM));
+        assertEquals(5, service.getAvailable(ITEM));
+        service.releaseAll("cart-1");
+        assertEquals(10, service.getAvailable(ITEM));
+    }
+
+    @Test
+    void refusedReservationPicksUpRestock() throws Exception {
+        database.setStock(ITEM, 1);
+        service = new StockReservationService(database, TTL_MS);
+        assertTrue(service.reserve("cart-1", ITEM, 1));
+        int reads = database.reads.get();
+
+        database.setStock(ITEM, 5);
+        assertTrue(service.reserve("cart-2", ITEM, 2));
+        assertEquals(reads + 1, database.reads.get());
+        assertEquals(2, service.getAvailable(ITEM));
+
+        database.setStock(ITEM, 10);
+        service.checkout("cart-2", Map.of(ITEM, 8), () -> database.placeOrder(ITEM, 8));
+        assertEquals(2, database.stock(ITEM));
+        assertEquals(1, service.getAvailable(ITEM));
+    }
+
+    @Test
+    void refusedReservationWithoutRestockReadsOnce() throws Exception {
+        database.setStock(ITEM, 1);
+        service = new StockReservationService(database, TTL_MS);
+        assertTrue(service.reserve("cart-1", ITEM, 1));
+        int reads = database.reads.get();
+
+        assertFalse(service.reserve("cart-2", ITEM, 1));
+        assertEquals(reads + 1, database.reads.get());
+    }
+
+    @Test
+    void preloadedItemsReserveWithoutReadingTheDatabase() throws Exception {
+        database.setStock(ITEM, 5);
+        database.setStock(2, 5);
+        service = new StockReservationService(database, TTL_MS);
+        service.preload();
+
+        assertTrue(service.reserve("cart-1", ITEM, 2));
+        assertTrue(service.reserve("cart-1", 2, 5));
+        assertEquals(0, database.reads.get());
+    }
+
+    // Releases every cart and checks the counts match the database again
+    private void assertSettled() {
+        for (int i = 0; i < THREADS; i++) {
+            service.releaseAll("cart-" + i);
+        }
+        assertEquals(database.stock(ITEM), service.getAvailable(ITEM));
+    }
+
+    private static void runConcurrently(Runnable task) throws Exception {
+        runConcurrently(thread -> task.run());
+    }
+
+    private static void runConcurrently(Worker task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    // Stands in for food_items; placeOrder refuses to drive stock below zero like FoodOrderDAO.save
+    private static final class FakeFoodItemDAO extends FoodItemDAO {
+        final Map<Integer, Integer> stock = new ConcurrentHashMap<>();
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicInteger refusedOrders = new AtomicInteger();
+
+        void setStock(int id, int quantity) {
+            stock.put(id, quantity);
+        }
+
+        int stock(int id) {
+            return stock.get(id);
+        }
+
+        synchronized int placeOrder(int id, int quantity) throws SQLException {
+            int current = stock.get(id);
+            if (current < quantity) {
+                refusedOrders.incrementAndGet();
+                throw new SQLException("Not enough stock in the database");
+            }
+            stock.put(id, current - quantity);
+            return current - quantity;
+        }
+
+        @Override
+        public Optional<FoodItem> get(int id) {
+            reads.incrementAndGet();
+            Integer quantity = stock.get(id);
+            return quantity == null ? Optional.empty()
+                    : Optional.of(new FoodItem(id, "item", 10, "", "snacks", true, null, quantity));
+        }
+
+        @Override
+        public Map<Integer, Integer> getStockLevels() {
+            return Map.copyOf(stock);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.onestopuiu.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Helpers for tests that run against the application's MySQL database. Tests call
+ * {@link #connectOrSkip()} first, so they are skipped where no database is reachable.
+ * Seeded users and food items get unique names and are removed with {@link #deleteUser}
+ * and {@link #deleteFoodItem}, leaving the rest of the data alone.
+ */
+public final class TestDatabase {
+    private static final int INSERT_BATCH = 1000;
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Borrows a connection to the migrated schema, or skips the calling test when MySQL is missing.
+     */
+    public static Connection connectOrSkip() {
+        Connection conn;
+        try {
+            conn = DatabaseConnection.getConnection();
+        } catch (RuntimeException e) {
+            conn = null;
+        }
+        assumeTrue(conn != null, "MySQL database not available");
+        SchemaMigrator.migrate();
+        return conn;
+    }
+
+    public static int createUser(Connection conn) throws SQLException {
+        String username = "test-" + System.nanoTime();
+        try (PreparedStatement stmt = conn.prepareStatement(
+            "INSERT INTO users (username, password, role, email) VALUES (?, 'test', 'CUSTOMER', ?)",
+            Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, username);
+            stmt.setString(2, username + "@test.invalid");
+            stmt.executeUpdate();
+            return generatedId(stmt);
+        }
+    }
+
+    public static int createFoodItem(Connection conn, int stock) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+            "INSERT INTO food_items (name, price, description, category, available, stock_quantity) " +
+            "VALUES (?, 10.00, 'test item', 'snacks', 1, ?)",
+            Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, "test-item-" + System.nanoTime());
+            stmt.setInt(2, stock);
+            stmt.executeUpdate();
+            return generatedId(stmt);
+        }
+    }
+
+    public static int stockOf(Connection conn, int foodItemId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT stock_quantity FROM food_items WHERE id = ?")) {
+            stmt.setInt(1, foodItemId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Food item not found with ID: " + foodItemId);
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Inserts {@code count} orders for the user, one minute apart ending now, each with one
+     * item of {@code foodItemId}. Every {@code pendingEvery}-th order is pending, the rest
+     * completed (0 means all completed).
+     */
+    public static void insertOrders(Connection conn, int userId, int foodItemId, int count, int pendingEvery)
+            throws SQLException {
+        long now = System.currentTimeMillis();
+        try (PreparedStatement stmt = conn.prepareStatement(
+            "INSERT INTO food_orders (user_id, status, order_time, total_amount) VALUES (?, ?, ?, 10.00)")) {
+            for (int i = 0; i < count; i++) {
+                stmt.setInt(1, userId);
+                stmt.setString(2, pendingEvery > 0 && i % pendingEvery == 0 ? "pending" : "completed");
+                stmt.setTimestamp(3, new Timestamp(now - (count - i) * 60_000L));
+                stmt.addBatch();
+                if ((i + 1) % INSERT_BATCH == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+            "INSERT INTO food_order_items (order_id, food_item_id, quantity, unit_price) " +
+            "SELECT o.id, ?, 1, 10.00 FROM food_orders o " +
+            "WHERE o.user_id = ? AND NOT EXISTS (SELECT 1 FROM food_order_items i WHERE i.order_id = o.id)")) {
+            stmt.setInt(1, foodItemId);
+            stmt.setInt(2, userId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Removes the user together with their orders and order items. Tests don't create payments.
+     */
+    public static void deleteUser(Connection conn, int userId) throws SQLException {
+        execute(conn, "DELETE i FROM food_order_items i JOIN food_orders o ON o.id = i.order_id WHERE o.user_id = ?", userId);
+        execute(conn, "DELETE FROM food_orders WHERE user_id = ?", userId);
+        execute(conn, "DELETE FROM users WHERE id = ?", userId);
+    }
+
+    public static void deleteFoodItem(Connection conn, int foodItemId) throws SQLException {
+        execute(conn, "DELETE FROM food_items WHERE id = ?", foodItemId);
+    }
+
+    private static void execute(Connection conn, String sql, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static int generatedId(Statement stmt) throws SQLException {
+        try (ResultSet keys = stmt.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("No generated key returned");
+            }
+            return keys.getInt(1);
+        }
+    }
+}